@@ -0,0 +1,30 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+class BenchmarkUtils {
+
+	/**
+	 * Force the breaker state using package-private transitions, whatever the current state
+	 */
+	static void moveToState(CircuitBreaker circuitBreaker, BreakerStateType breakerStateType) {
+		BreakerStateInterface fromState = circuitBreaker.getBreakerState();
+		switch(breakerStateType) {
+		case CLOSED:
+			circuitBreaker.moveToClosedState(fromState, StateChangeReason.HALF_OPEN_NO_THRESHOLD_EXCEEDED);
+			break;
+		case OPEN:
+			circuitBreaker.moveToOpenState(fromState, StateChangeReason.THRESHOLD_EXCEEDED);
+			break;
+		case HALF_OPEN:
+			circuitBreaker.moveToHalfOpenState(fromState, StateChangeReason.WAIT_DURATION_IN_OPEN_STATE_OVER);
+			break;
+		case DISABLED:
+			circuitBreaker.moveToDisabledState(fromState, StateChangeReason.INITIAL_STATE);
+			break;
+		case FORCED_OPEN:
+			circuitBreaker.moveToForcedOpenState(fromState, StateChangeReason.INITIAL_STATE);
+			break;
+		}
+		if(circuitBreaker.getBreakerState().getBreakerStateType() != breakerStateType)
+			throw new IllegalStateException("Failed to move to state " + breakerStateType);
+	}
+}
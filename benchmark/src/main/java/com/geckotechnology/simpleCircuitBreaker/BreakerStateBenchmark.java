@@ -0,0 +1,91 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the breaker protocol (isClosedForThisCall then callSucceeded) in each state.
+ * All threads share the same breaker, run with -t to measure scaling and -prof gc for allocation rate.
+ * The breaker is created in the same package to force the state with package-private transitions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BreakerStateBenchmark {
+
+	@Param({"CLOSED", "OPEN", "HALF_OPEN", "DISABLED", "FORCED_OPEN"})
+	public BreakerStateType breakerStateType;
+
+	@Param({"TIME_BASED"})
+	public SlidingWindowType slidingWindowType;
+
+	@Param({"1", "10", "100", "3600"})
+	public int slidingWindowSize;
+
+	@Param({"1"})
+	public int slidingWindowStripeCount;
+
+	@Param({"MONOTONIC"})
+	public String clock;
+
+	private CircuitBreaker circuitBreaker;
+
+	/**
+	 * A new breaker each iteration, so that HALF_OPEN never runs out of permits
+	 */
+	@Setup(Level.Iteration)
+	public void setUp() {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setName("benchmark");
+		config.setSlidingWindowType(slidingWindowType);
+		config.setSlidingWindowSize(slidingWindowSize);
+		config.setSlidingWindowStripeCount(slidingWindowStripeCount);
+		config.setClock("COARSE".equals(clock) ? CoarseBreakerClock.getInstance() : MonotonicBreakerClock.getInstance());
+		//never trip: failures and slow calls are ignored
+		config.setFailureRateThreshold(0);
+		config.setSlowCallRateThreshold(0);
+		config.setWaitDurationInOpenState(TimeUnit.HOURS.toMillis(1));
+		config.setPermittedNumberOfCallsInHalfOpenState(Integer.MAX_VALUE);
+		config.setMaxDurationOpenInHalfOpenState(0);
+		circuitBreaker = new CircuitBreaker(config);
+		BenchmarkUtils.moveToState(circuitBreaker, breakerStateType);
+	}
+
+	@Benchmark
+	public boolean isClosedForThisCall() {
+		return circuitBreaker.isClosedForThisCall();
+	}
+
+	@Benchmark
+	public boolean callSucceeded() {
+		if(circuitBreaker.isClosedForThisCall()) {
+			circuitBreaker.callSucceeded(1);
+			return true;
+		}
+		return false;
+	}
+
+	@Benchmark
+	public boolean callFailed() {
+		if(circuitBreaker.isClosedForThisCall()) {
+			circuitBreaker.callFailed(1);
+			return true;
+		}
+		return false;
+	}
+}
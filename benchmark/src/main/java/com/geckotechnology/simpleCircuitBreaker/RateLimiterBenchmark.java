@@ -0,0 +1,80 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of a CLOSED breaker with a rate limit. breakerOnly is the reference without rate limit, attachedRateLimiter
+ * uses limitForPeriod so isClosedForThisCall() checks both, separateRateLimiter checks a limiter of its own before
+ * the breaker, the way a rate limiter from another library is used. The limit is never reached.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+	@Param({"MONOTONIC", "COARSE"})
+	public String clock;
+
+	private CircuitBreaker circuitBreaker;
+	private CircuitBreaker rateLimitedCircuitBreaker;
+	private RateLimiter rateLimiter;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		BreakerClock breakerClock = "COARSE".equals(clock) ? CoarseBreakerClock.getInstance() : MonotonicBreakerClock.getInstance();
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setName("benchmark");
+		config.setClock(breakerClock);
+		//never trip: failures and slow calls are ignored
+		config.setFailureRateThreshold(0);
+		config.setSlowCallRateThreshold(0);
+		circuitBreaker = new CircuitBreaker(config);
+		rateLimiter = new RateLimiter(Integer.MAX_VALUE, 1000, breakerClock);
+		config.setLimitForPeriod(Integer.MAX_VALUE);
+		config.setLimitRefreshPeriod(1000);
+		rateLimitedCircuitBreaker = new CircuitBreaker(config);
+	}
+
+	@Benchmark
+	public boolean breakerOnly() {
+		if(circuitBreaker.isClosedForThisCall()) {
+			circuitBreaker.callSucceeded(1);
+			return true;
+		}
+		return false;
+	}
+
+	@Benchmark
+	public boolean attachedRateLimiter() {
+		if(rateLimitedCircuitBreaker.isClosedForThisCall()) {
+			rateLimitedCircuitBreaker.callSucceeded(1);
+			return true;
+		}
+		return false;
+	}
+
+	@Benchmark
+	public boolean separateRateLimiter() {
+		if(rateLimiter.tryAcquire() && circuitBreaker.isClosedForThisCall()) {
+			circuitBreaker.callSucceeded(1);
+			return true;
+		}
+		return false;
+	}
+}
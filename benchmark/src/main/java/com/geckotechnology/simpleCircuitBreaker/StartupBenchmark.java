@@ -0,0 +1,83 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of creating breakers in a registry, and number of threads started by the library while doing so.
+ * The startedThreads counter stays at 0 without listener. With a listener, the event dispatcher thread
+ * is started once per iteration, as it is shut down at the end of each iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StartupBenchmark {
+
+	@Param({"100", "10000"})
+	public int breakerCount;
+
+	@Param({"false", "true"})
+	public boolean withListener;
+
+	private CircuitBreakerConfig config;
+
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class ThreadCounters {
+		public long startedThreads;
+		private long startedThreadsBefore;
+
+		@Setup(Level.Iteration)
+		public void setUp() {
+			startedThreads = 0;
+			startedThreadsBefore = ManagementFactory.getThreadMXBean().getTotalStartedThreadCount();
+		}
+
+		@TearDown(Level.Iteration)
+		public void tearDown() throws InterruptedException {
+			BreakerStateEventManager.shutdownDefaultExecutor(1000);
+			startedThreads = ManagementFactory.getThreadMXBean().getTotalStartedThreadCount() - startedThreadsBefore;
+		}
+	}
+
+	@Setup
+	public void setUp() {
+		config = new CircuitBreakerConfig();
+		config.setMinimumNumberOfCalls(1);
+	}
+
+	@Benchmark
+	public CircuitBreakerRegistry createBreakers(ThreadCounters threadCounters) {
+		CircuitBreakerRegistry registry = new CircuitBreakerRegistry(config);
+		for(int i = 0; i<breakerCount; i++)
+			registry.getOrCreate("breaker" + i);
+		if(withListener) {
+			CircuitBreaker circuitBreaker = registry.getOrCreate("breaker0");
+			circuitBreaker.getBreakerStateEventManager().addBreakerStateEventListener(new BreakerStateEventListener() {
+				@Override
+				public void onCircuitBreakerStateChangeEvent(CircuitBreakerStateChangeEvent event) {
+				}
+			});
+			circuitBreaker.callFailed(1);
+		}
+		return registry;
+	}
+}
@@ -0,0 +1,65 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the state transitions, single threaded. Run with -prof gc to check that no garbage is
+ * created per transition, as state objects are reset in place. The reset cost grows with slidingWindowSize.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransitionBenchmark {
+
+	@Param({"1", "10", "100", "3600"})
+	public int slidingWindowSize;
+
+	private CircuitBreaker circuitBreaker;
+
+	@Setup
+	public void setUp() {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setName("benchmark");
+		config.setSlidingWindowSize(slidingWindowSize);
+		config.setMinimumNumberOfCalls(1);
+		config.setFailureRateThreshold(50);
+		config.setWaitDurationInOpenState(TimeUnit.HOURS.toMillis(1));
+		circuitBreaker = new CircuitBreaker(config);
+	}
+
+	/**
+	 * CLOSED -> OPEN -> HALF_OPEN -> CLOSED
+	 */
+	@Benchmark
+	public BreakerStateInterface openHalfOpenClosedCycle() {
+		BenchmarkUtils.moveToState(circuitBreaker, BreakerStateType.OPEN);
+		BenchmarkUtils.moveToState(circuitBreaker, BreakerStateType.HALF_OPEN);
+		BenchmarkUtils.moveToState(circuitBreaker, BreakerStateType.CLOSED);
+		return circuitBreaker.getBreakerState();
+	}
+
+	/**
+	 * CLOSED -> OPEN as the first failure exceeds the threshold, then back to CLOSED
+	 */
+	@Benchmark
+	public BreakerStateInterface tripOnFailure() {
+		circuitBreaker.callFailed(1);
+		BenchmarkUtils.moveToState(circuitBreaker, BreakerStateType.CLOSED);
+		return circuitBreaker.getBreakerState();
+	}
+}
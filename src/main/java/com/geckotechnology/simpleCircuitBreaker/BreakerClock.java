@@ -0,0 +1,9 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+/**
+ * Time source of the breaker, used for the sliding window buckets and the OPEN and HALF_OPEN durations.
+ * Values are in ms, they must never go backward but do not need to be related to the wall clock.
+ */
+public interface BreakerClock {
+	public long currentTimeMillis();
+}
@@ -3,33 +3,42 @@ package com.geckotechnology.simpleCircuitBreaker;
 class BreakerClosedState implements BreakerStateInterface {
 
 	private final CircuitBreaker circuitBreaker;
-	private final int slidingWindowSize;
-	private CountStats countStats;
-    private int callCountBuckets[];
-    private int failureCallCountBuckets[];
-    private int slowCallDurationCountBuckets[];
-    private int lastCallTimestampInSec = 0;
-	
+	private final boolean isTimeBased;
+	private final long slidingWindowBucketWidth;
+	private final BreakerClock clock;
+	private final SlidingWindowInterface slidingWindows[];
+
 	BreakerClosedState(CircuitBreaker circuitBreaker) {
 		this.circuitBreaker = circuitBreaker;
-		countStats = new CountStats();
-		slidingWindowSize = circuitBreaker.getCircuitBreakerConfig().getSlidingWindowSize();
-		clearAllBuckets();
+		CircuitBreakerConfig config = circuitBreaker.getCircuitBreakerConfig();
+		isTimeBased = config.getSlidingWindowType() == SlidingWindowType.TIME_BASED;
+		slidingWindowBucketWidth = config.getSlidingWindowBucketWidth();
+		clock = config.getClock();
+		int stripeCount = config.getSlidingWindowStripeCount();
+		slidingWindows = new SlidingWindowInterface[stripeCount];
+		for(int i = 0; i<stripeCount; i++) {
+			if(isTimeBased)
+				slidingWindows[i] = new TimeBasedSlidingWindow(config.getSlidingWindowSize(), clock.currentTimeMillis() / slidingWindowBucketWidth,
+						config.isLatencyHistogramEnabled());
+			else {
+				//the last slidingWindowSize calls are shared among the stripes
+				slidingWindows[i] = new CountBasedSlidingWindow((config.getSlidingWindowSize() + stripeCount - 1) / stripeCount);
+			}
+		}
 	}
-	
+
+	@Override
+	public void reset() {
+		long bucketTimestamp = isTimeBased ? clock.currentTimeMillis() / slidingWindowBucketWidth : 0;
+		for(SlidingWindowInterface slidingWindow:slidingWindows)
+			slidingWindow.reset(bucketTimestamp);
+	}
+
 	@Override
 	public BreakerStateType getBreakerStateType() {
 		return BreakerStateType.CLOSED;
 	}
-	
-	private void clearAllBuckets() {
-		callCountBuckets = new int[slidingWindowSize];
-		failureCallCountBuckets = new int[slidingWindowSize];
-		slowCallDurationCountBuckets = new int[slidingWindowSize];
-		countStats = new CountStats();
-    	lastCallTimestampInSec = (int)(System.currentTimeMillis() / 1000);
-	}
-	
+
 	@Override
 	public boolean isClosedForThisCall() {
 		return true;
@@ -45,71 +54,118 @@ class BreakerClosedState implements BreakerStateInterface {
 		callFailedOrSuccedded(callDuration, false);
 	}
 
+	/**
+	 * The outcome is recorded in the stripe of the current thread only (a single stripe by default).
+	 * The threshold check then sums all stripes without taking their lock. The token is read before the sums, so that
+	 * a call recorded before the window was reset by a later CLOSED period can not open the breaker.
+	 * The failure and slow counts are summed before the call counts: calls recorded in between only add to the call
+	 * count, so a rate is never over-estimated, and the thread recording the last call sees all of them.
+	 * With several stripes, reading the other stripes would fetch the cache lines other cores are writing, so the sums
+	 * are only read by failed or slow calls, which are the only ones raising a rate. Successful calls then only touch
+	 * their own stripe
+	 */
     private void callFailedOrSuccedded(long callDuration, boolean isFailureCall) {
     	boolean isSlowCall = circuitBreaker.isSlowCall(callDuration);
-    	int nowInSec = (int)(System.currentTimeMillis() / 1000);
-    	if(lastCallTimestampInSec == nowInSec) {
-    		//just add to current bucket, we are still in the same second
-    		addToLastCallTimestampInSecBucket(isFailureCall, isSlowCall);
+    	long bucketTimestamp = isTimeBased ? clock.currentTimeMillis() / slidingWindowBucketWidth : 0;
+    	SlidingWindowInterface slidingWindowOfCurrentThread = getSlidingWindowOfCurrentThread();
+    	slidingWindowOfCurrentThread.addCall(bucketTimestamp, isFailureCall, isSlowCall, callDuration);
+    	if(slidingWindows.length > 1) {
+    		if(!isFailureCall && !isSlowCall)
+    			return;
     	}
-    	else {
-    		//compared to lastCallTimestampInSec, we moved next second or more
-    		if((nowInSec - lastCallTimestampInSec) >= slidingWindowSize) {
-    			//compared to lastCallTimestampInSec, there is more than slidingWindowSize difference
-    			//then clear all buckets
-    			clearAllBuckets();
-    		}
-    		else {
-    			//only few buckets need to be cleared
-    			for(int timeInSec = lastCallTimestampInSec + 1; timeInSec <= nowInSec; timeInSec++)
-    				clearBucket(timeInSec);
-    			lastCallTimestampInSec = nowInSec;
-    		}
-			addToLastCallTimestampInSecBucket(isFailureCall, isSlowCall);
+    	long stateToken = circuitBreaker.getStateToken();
+    	long failureCallCount = 0;
+    	long slowCallDurationCount = 0;
+    	for(SlidingWindowInterface slidingWindow:slidingWindows) {
+    		failureCallCount += slidingWindow.getFailureCallCount(bucketTimestamp);
+    		slowCallDurationCount += slidingWindow.getSlowCallDurationCount(bucketTimestamp);
     	}
+    	long callCount = 0;
+    	for(SlidingWindowInterface slidingWindow:slidingWindows)
+    		callCount += slidingWindow.getCallCount(bucketTimestamp);
     	//check now if we need to move to open state
-    	if(countStats.callCount >= circuitBreaker.getCircuitBreakerConfig().getMinimumNumberOfCalls()) {
-    		if(circuitBreaker.isExceedFailureOrSlowRateThreshold(countStats)) {
-    			circuitBreaker.moveToOpenState("Threshold exceeded. countStats:{" + countStats.toCountAndRatioStatsString() + "}");
-    		}
-    	}
+    	if(callCount < circuitBreaker.getCircuitBreakerConfig().getMinimumNumberOfCalls())
+    		return;
+    	if(circuitBreaker.isExceedFailureOrSlowRateThreshold(callCount, failureCallCount, slowCallDurationCount))
+    		circuitBreaker.moveToOpenState(this, stateToken, StateChangeReason.THRESHOLD_EXCEEDED, callCount, failureCallCount, slowCallDurationCount);
+    }
+
+    /**
+     * Merges the latency histograms of all stripes, without taking their lock
+     * @return -1 if there is no call in the window or latency histograms are not enabled
+     */
+    long getCallDurationPercentile(double percentile) {
+    	long bucketTimestamp = isTimeBased ? clock.currentTimeMillis() / slidingWindowBucketWidth : 0;
+    	long histogram[] = new long[LatencyHistogram.SLOT_COUNT];
+    	for(SlidingWindowInterface slidingWindow:slidingWindows)
+    		slidingWindow.addLatencyHistogram(bucketTimestamp, histogram);
+    	return LatencyHistogram.getCallDurationAtPercentile(histogram, percentile);
     }
-    
-    private void addToLastCallTimestampInSecBucket(boolean isFailureCall, boolean isSlowCall) {
-    	countStats.callCount++;
-    	if(isFailureCall)
-    		countStats.failureCallCount++;
-    	if(isSlowCall)
-    		countStats.slowCallDurationCount++;
-    	int lastCallTimestampBucket = lastCallTimestampInSec % slidingWindowSize;
-    	callCountBuckets[lastCallTimestampBucket]++;
-    	if(isFailureCall)
-    		failureCallCountBuckets[lastCallTimestampBucket]++;
-    	if(isSlowCall)
-    		slowCallDurationCountBuckets[lastCallTimestampBucket]++;	
+
+    /**
+     * Sums the stripes without taking their lock, for the metrics and the hedging budget
+     * @return number of calls of the window
+     */
+    @Override
+    public long getCallCount() {
+    	long bucketTimestamp = isTimeBased ? clock.currentTimeMillis() / slidingWindowBucketWidth : 0;
+    	long callCount = 0;
+    	for(SlidingWindowInterface slidingWindow:slidingWindows)
+    		callCount += slidingWindow.getCallCount(bucketTimestamp);
+    	return callCount;
+    }
+
+    @Override
+    public long getFailureCallCount() {
+    	long bucketTimestamp = isTimeBased ? clock.currentTimeMillis() / slidingWindowBucketWidth : 0;
+    	long failureCallCount = 0;
+    	for(SlidingWindowInterface slidingWindow:slidingWindows)
+    		failureCallCount += slidingWindow.getFailureCallCount(bucketTimestamp);
+    	return failureCallCount;
+    }
+
+    @Override
+    public long getSlowCallDurationCount() {
+    	long bucketTimestamp = isTimeBased ? clock.currentTimeMillis() / slidingWindowBucketWidth : 0;
+    	long slowCallDurationCount = 0;
+    	for(SlidingWindowInterface slidingWindow:slidingWindows)
+    		slowCallDurationCount += slidingWindow.getSlowCallDurationCount(bucketTimestamp);
+    	return slowCallDurationCount;
     }
-    
-    private void clearBucket(int timeInSec) {
-    	int bucket = timeInSec % slidingWindowSize;
-    	countStats.callCount -= callCountBuckets[bucket];
-		callCountBuckets[bucket] = 0;
-		countStats.failureCallCount -= failureCallCountBuckets[bucket];
-		failureCallCountBuckets[bucket] = 0;
-		countStats.slowCallDurationCount -= slowCallDurationCountBuckets[bucket];
-		slowCallDurationCountBuckets[bucket] = 0;
+
+    /**
+     * Sums the stripes without taking their lock, for the retry budget
+     * @return number of calls of the window not failed, slow ones included
+     */
+    long getSuccessCallCount() {
+    	long bucketTimestamp = isTimeBased ? clock.currentTimeMillis() / slidingWindowBucketWidth : 0;
+    	long successCallCount = 0;
+    	for(SlidingWindowInterface slidingWindow:slidingWindows)
+    		successCallCount += slidingWindow.getCallCount(bucketTimestamp) - slidingWindow.getFailureCallCount(bucketTimestamp);
+    	return successCallCount;
     }
-    
-    CountStats getCountStats() {
-    	return countStats;
+
+    private SlidingWindowInterface getSlidingWindowOfCurrentThread() {
+    	if(slidingWindows.length == 1)
+    		return slidingWindows[0];
+    	return slidingWindows[(int)(Thread.currentThread().getId() % slidingWindows.length)];
     }
-    
-    CountStats calculateAggregatedCountStatsForUnitTest() {
-    	CountStats aggregatedCountStats = new CountStats();
-    	for(int i = 0; i<slidingWindowSize; i++) {
-    		aggregatedCountStats.callCount += callCountBuckets[i];
-    		aggregatedCountStats.failureCallCount += failureCallCountBuckets[i];
-    		aggregatedCountStats.slowCallDurationCount += slowCallDurationCountBuckets[i];
-    	}   	
-    	return aggregatedCountStats;
+
+    /**
+     * @return rough size in bytes of all stripes
+     */
+    long getEstimatedMemoryFootprint() {
+    	long memoryFootprint = 0;
+    	for(SlidingWindowInterface slidingWindow:slidingWindows)
+    		memoryFootprint += slidingWindow.getEstimatedMemoryFootprint();
+    	return memoryFootprint;
+    }
+
+    /**
+     * Used for unit test
+     * @return the stripes, a single one unless slidingWindowStripeCount is set
+     */
+    SlidingWindowInterface[] getSlidingWindowsForUnitTest() {
+    	return slidingWindows;
     }
 }
@@ -5,11 +5,30 @@ class BreakerDisabledState implements BreakerStateInterface {
 	BreakerDisabledState(CircuitBreaker circuitBreaker) {
 	}
 	
+	@Override
+	public long getCallCount() {
+		return 0;
+	}
+	
+	@Override
+	public long getFailureCallCount() {
+		return 0;
+	}
+	
+	@Override
+	public long getSlowCallDurationCount() {
+		return 0;
+	}
+	
 	@Override
 	public BreakerStateType getBreakerStateType() {
 		return BreakerStateType.DISABLED;
 	}
 	
+	@Override
+	public void reset() {
+	}
+	
 	@Override
 	public boolean isClosedForThisCall() {
 		//always closed
@@ -0,0 +1,13 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+/**
+ * Decides how CircuitBreaker.execute() and run() record a call ending with an exception.
+ * For example business exceptions such as a validation error may be recorded as a success.
+ */
+public interface BreakerExceptionClassifier {
+	/**
+	 * @param throwable exception thrown by the call, Errors included
+	 * @return true to record the call as failed, false to record it as succeeded
+	 */
+	public boolean isFailure(Throwable throwable);
+}
@@ -5,11 +5,30 @@ class BreakerForcedOpenState implements BreakerStateInterface {
 	BreakerForcedOpenState(CircuitBreaker circuitBreaker) {
 	}
 	
+	@Override
+	public long getCallCount() {
+		return 0;
+	}
+	
+	@Override
+	public long getFailureCallCount() {
+		return 0;
+	}
+	
+	@Override
+	public long getSlowCallDurationCount() {
+		return 0;
+	}
+	
 	@Override
 	public BreakerStateType getBreakerStateType() {
 		return BreakerStateType.FORCED_OPEN;
 	}
 	
+	@Override
+	public void reset() {
+	}
+	
 	@Override
 	public boolean isClosedForThisCall() {
 		//always opened
@@ -1,15 +1,63 @@
 package com.geckotechnology.simpleCircuitBreaker;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
 class BreakerHalfOpenState implements BreakerStateInterface {
 
 	private final CircuitBreaker circuitBreaker;
-	private CountStats countStats;
-    private int permittedNumberOfCallsInHalfOpenStateSoFar = 0;
-    private long lastOpenCallTimeLimit = 0;
+	private final BreakerClock clock;
+	//lock-free counts. callCount is incremented last, so that the thread reaching permittedNumberOfCallsInHalfOpenState
+	//finds the failure and slow counts of all the calls it counted
+	private final AtomicLong callCount = new AtomicLong();
+	private final AtomicLong failureCallCount = new AtomicLong();
+	private final AtomicLong slowCallDurationCount = new AtomicLong();
+    private final AtomicInteger permittedNumberOfCallsInHalfOpenStateSoFar = new AtomicInteger();
+    private final AtomicLong lastOpenCallTimeLimit = new AtomicLong();
+    //one slot per permit when permitExpiryDurationInHalfOpenState is set, null otherwise.
+    //A slot holds the expiry timestamp of its permit, 0 while it is being issued, PERMIT_REPORTED once an outcome is received
+    private final AtomicLongArray permitExpiryTimestamps;
+    private static final long PERMIT_REPORTED = -1;
 	
 	BreakerHalfOpenState(CircuitBreaker circuitBreaker) {
 		this.circuitBreaker = circuitBreaker;
-		countStats = new CountStats();
+		clock = circuitBreaker.getCircuitBreakerConfig().getClock();
+		if(circuitBreaker.getCircuitBreakerConfig().getPermitExpiryDurationInHalfOpenState() > 0)
+			permitExpiryTimestamps = new AtomicLongArray(circuitBreaker.getCircuitBreakerConfig().getPermittedNumberOfCallsInHalfOpenState());
+		else
+			permitExpiryTimestamps = null;
+	}
+	
+	/**
+	 * Called during the transition to this state only, while no thread can take a transition decision from this state
+	 */
+	@Override
+	public void reset() {
+		callCount.set(0);
+		failureCallCount.set(0);
+		slowCallDurationCount.set(0);
+		permittedNumberOfCallsInHalfOpenStateSoFar.set(0);
+		lastOpenCallTimeLimit.set(0);
+		if(permitExpiryTimestamps != null) {
+			for(int i = 0; i<permitExpiryTimestamps.length(); i++)
+				permitExpiryTimestamps.set(i, 0);
+		}
+	}
+	
+	@Override
+	public long getCallCount() {
+		return callCount.get();
+	}
+	
+	@Override
+	public long getFailureCallCount() {
+		return failureCallCount.get();
+	}
+	
+	@Override
+	public long getSlowCallDurationCount() {
+		return slowCallDurationCount.get();
 	}
 	
 	@Override
@@ -20,23 +68,38 @@ class BreakerHalfOpenState implements BreakerStateInterface {
 	@Override
 	public boolean isClosedForThisCall() {
 		//ensure permittedNumberOfCallsInHalfOpenState calls are executed, by returning true
-		if(permittedNumberOfCallsInHalfOpenStateSoFar < circuitBreaker.getCircuitBreakerConfig().getPermittedNumberOfCallsInHalfOpenState()) {
-			permittedNumberOfCallsInHalfOpenStateSoFar++;
-			return true;
+		int permittedNumberOfCallsInHalfOpenState = circuitBreaker.getCircuitBreakerConfig().getPermittedNumberOfCallsInHalfOpenState();
+		while(true) {
+			int soFar = permittedNumberOfCallsInHalfOpenStateSoFar.get();
+			if(soFar >= permittedNumberOfCallsInHalfOpenState)
+				break;
+			if(permittedNumberOfCallsInHalfOpenStateSoFar.compareAndSet(soFar, soFar + 1)) {
+				//the outcome of this call may already be reported, in which case the slot must not be armed anymore
+				if(permitExpiryTimestamps != null)
+					permitExpiryTimestamps.compareAndSet(soFar, 0, getPermitExpiryTimestamp());
+				return true;
+			}
 		}
+		//all permits are issued, take over an expired one if any
+		if(permitExpiryTimestamps != null && reissueExpiredPermit())
+			return true;
 		//no more calls allowed
 		//if maxDurationOpenInHalfOpenState is 0, this situation can last forever. Return false 
 		if(circuitBreaker.getCircuitBreakerConfig().getMaxDurationOpenInHalfOpenState() == 0)
 			return false;
 		//There is a time  limit. Check if it is set. If not, it is the first call. Return false
-		if(lastOpenCallTimeLimit == 0) {
-			lastOpenCallTimeLimit = System.currentTimeMillis() + circuitBreaker.getCircuitBreakerConfig().getMaxDurationOpenInHalfOpenState();
+		//The token is read first, so that a time limit set by a previous HALF_OPEN period can not move this one to CLOSED
+		long stateToken = circuitBreaker.getStateToken();
+		long timeLimit = lastOpenCallTimeLimit.get();
+		if(timeLimit == 0) {
+			lastOpenCallTimeLimit.compareAndSet(0, clock.currentTimeMillis() + circuitBreaker.getCircuitBreakerConfig().getMaxDurationOpenInHalfOpenState());
 			return false;
 		}
-		if(System.currentTimeMillis() >= lastOpenCallTimeLimit) {
+		if(clock.currentTimeMillis() >= timeLimit) {
 			//we are beyond maxDurationOpenInHalfOpenState. Need to go back to CLOSED state
-    		circuitBreaker.moveToClosedState("MaxDurationOpenInHalfOpenState is over. countStats:{" + countStats.toCountStatsString() + "}");
-    		return circuitBreaker.isClosedForThisCall();
+    		circuitBreaker.moveToClosedState(this, stateToken, StateChangeReason.MAX_DURATION_OPEN_IN_HALF_OPEN_STATE_OVER,
+    				callCount.get(), failureCallCount.get(), slowCallDurationCount.get());
+    		return circuitBreaker.isClosedForThisCallAfterTransition(this);
 		}
 		//situation normal, no more call allowed
 		return false;
@@ -44,30 +107,113 @@ class BreakerHalfOpenState implements BreakerStateInterface {
 
 	@Override
 	public void callFailed(long callDuration) {
-		countStats.failureCallCount++;
-		callFailedOrSuccedded(callDuration);
+		if(permitExpiryTimestamps != null)
+			markPermitReported();
+		callFailedOrSuccedded(callDuration, true);
 	}
 
 	@Override
 	public void callSucceeded(long callDuration) {
-		callFailedOrSuccedded(callDuration);
+		if(permitExpiryTimestamps != null)
+			markPermitReported();
+		callFailedOrSuccedded(callDuration, false);
+	}
+	
+	/**
+	 * Gives back a permit whose call will never report an outcome, so that another call can take it. With expiring permits,
+	 * the first outstanding permit is expired right away and reissued by reissueExpiredPermit(). Otherwise the number of
+	 * permits issued is decremented
+	 */
+	void releasePermit() {
+		if(permitExpiryTimestamps != null) {
+			for(int i = 0; i<permitExpiryTimestamps.length(); i++) {
+				long expiryTimestamp = permitExpiryTimestamps.get(i);
+				//1 is a timestamp always in the past, and not a special value
+				if(expiryTimestamp > 1 && permitExpiryTimestamps.compareAndSet(i, expiryTimestamp, 1))
+					return;
+			}
+			return;
+		}
+		while(true) {
+			int soFar = permittedNumberOfCallsInHalfOpenStateSoFar.get();
+			if(soFar == 0 || permittedNumberOfCallsInHalfOpenStateSoFar.compareAndSet(soFar, soFar - 1))
+				return;
+		}
+	}
+	
+	private long getPermitExpiryTimestamp() {
+		return clock.currentTimeMillis() + circuitBreaker.getCircuitBreakerConfig().getPermitExpiryDurationInHalfOpenState();
+	}
+	
+	/**
+	 * Lock-free scan of the slots. Each expired permit is reissued once, as only one thread wins the CAS
+	 * @return true if an expired permit was reissued to the current caller
+	 */
+	private boolean reissueExpiredPermit() {
+		long currentTime = clock.currentTimeMillis();
+		for(int i = 0; i<permitExpiryTimestamps.length(); i++) {
+			long expiryTimestamp = permitExpiryTimestamps.get(i);
+			if(expiryTimestamp > 0 && currentTime >= expiryTimestamp &&
+					permitExpiryTimestamps.compareAndSet(i, expiryTimestamp, getPermitExpiryTimestamp()))
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Outcomes do not tell which permit they belong to. As permits are equivalent, the first permit still outstanding
+	 * is marked as reported so that it can not expire anymore. If none is armed yet, the outcome belongs to a permit
+	 * still being issued, whose slot is marked before its expiry is set
+	 */
+	private void markPermitReported() {
+		for(int i = 0; i<permitExpiryTimestamps.length(); i++) {
+			long expiryTimestamp = permitExpiryTimestamps.get(i);
+			if(expiryTimestamp > 0 && permitExpiryTimestamps.compareAndSet(i, expiryTimestamp, PERMIT_REPORTED))
+				return;
+		}
+		int issuedCount = Math.min(permittedNumberOfCallsInHalfOpenStateSoFar.get(), permitExpiryTimestamps.length());
+		for(int i = 0; i<issuedCount; i++) {
+			if(permitExpiryTimestamps.compareAndSet(i, 0, PERMIT_REPORTED))
+				return;
+		}
+	}
+	
+	/**
+	 * @return rough size in bytes of the permit slots, 0 if permits do not expire
+	 */
+	long getEstimatedMemoryFootprint() {
+		if(permitExpiryTimestamps == null)
+			return 0;
+		return 32 + 8 * permitExpiryTimestamps.length();
 	}
 
-    private void callFailedOrSuccedded(long callDuration) {
-    	countStats.callCount++;
+	/**
+	 * No lock is held, the transition is attempted by the thread whose call reaches permittedNumberOfCallsInHalfOpenState.
+	 * The token is read before the counts, so that counts of a previous HALF_OPEN period can not lead to a transition
+	 */
+    private void callFailedOrSuccedded(long callDuration, boolean isFailureCall) {
+    	if(isFailureCall)
+    		failureCallCount.incrementAndGet();
     	if(circuitBreaker.isSlowCall(callDuration))
-    		countStats.slowCallDurationCount++;
-    	if(countStats.callCount < circuitBreaker.getCircuitBreakerConfig().getPermittedNumberOfCallsInHalfOpenState())
+    		slowCallDurationCount.incrementAndGet();
+    	int permittedNumberOfCallsInHalfOpenState = circuitBreaker.getCircuitBreakerConfig().getPermittedNumberOfCallsInHalfOpenState();
+    	if(callCount.incrementAndGet() < permittedNumberOfCallsInHalfOpenState)
     		return;
     	//callCount reaches permittedNumberOfCallsInHalfOpenState
     	//Time to see if any threshold is exceeded:
     	//  If yes, go to open state
     	//  If no, go to closed state
-    	if(circuitBreaker.isExceedFailureOrSlowRateThreshold(countStats))
-    		circuitBreaker.moveToOpenState("Reached permittedNumberOfCallsInHalfOpenState and threshold exceeded. countStats:{" +
-    				countStats.toCountAndRatioStatsString() + "}");
+    	long stateToken = circuitBreaker.getStateToken();
+    	long callCountSnapshot = callCount.get();
+    	if(callCountSnapshot < permittedNumberOfCallsInHalfOpenState)
+    		return;
+    	long failureCallCountSnapshot = failureCallCount.get();
+    	long slowCallDurationCountSnapshot = slowCallDurationCount.get();
+    	if(circuitBreaker.isExceedFailureOrSlowRateThreshold(callCountSnapshot, failureCallCountSnapshot, slowCallDurationCountSnapshot))
+    		circuitBreaker.moveToOpenState(this, stateToken, StateChangeReason.HALF_OPEN_THRESHOLD_EXCEEDED,
+    				callCountSnapshot, failureCallCountSnapshot, slowCallDurationCountSnapshot);
     	else
-    		circuitBreaker.moveToClosedState("Reached permittedNumberOfCallsInHalfOpenState and no threshold exceeded. countStats:{" +
-    				countStats.toCountAndRatioStatsString() + "}");
+    		circuitBreaker.moveToClosedState(this, stateToken, StateChangeReason.HALF_OPEN_NO_THRESHOLD_EXCEEDED,
+    				callCountSnapshot, failureCallCountSnapshot, slowCallDurationCountSnapshot);
     }
 }
@@ -1,13 +1,55 @@
 package com.geckotechnology.simpleCircuitBreaker;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 class BreakerOpenState implements BreakerStateInterface {
 
 	private final CircuitBreaker circuitBreaker;
+	private final BreakerClock clock;
 	private long openStateEndTimestamp;
 	
 	BreakerOpenState(CircuitBreaker circuitBreaker) {
 		this.circuitBreaker = circuitBreaker;
-		openStateEndTimestamp = System.currentTimeMillis() + circuitBreaker.getCircuitBreakerConfig().getWaitDurationInOpenState();
+		clock = circuitBreaker.getCircuitBreakerConfig().getClock();
+	}
+	
+	/**
+	 * Called during the transition, once the breaker has counted this OPEN period
+	 */
+	@Override
+	public void reset() {
+		openStateEndTimestamp = clock.currentTimeMillis() + getWaitDuration();
+	}
+	
+	/**
+	 * @return waitDurationInOpenState grown by the backoff and shortened by the jitter, in ms
+	 */
+	long getWaitDuration() {
+		CircuitBreakerConfig config = circuitBreaker.getCircuitBreakerConfig();
+		long waitDuration = config.getWaitDurationInOpenState();
+		int consecutiveReopenCount = circuitBreaker.getConsecutiveOpenCount() - 1;
+		if(consecutiveReopenCount > 0 && config.getWaitDurationInOpenStateMultiplier() > 1) {
+			double backoff = waitDuration * Math.pow(config.getWaitDurationInOpenStateMultiplier(), consecutiveReopenCount);
+			waitDuration = Math.max(waitDuration, (long)Math.min(config.getMaxWaitDurationInOpenState(), backoff));
+		}
+		if(config.getWaitDurationInOpenStateJitter() > 0)
+			waitDuration -= (long)(waitDuration * ThreadLocalRandom.current().nextDouble() * config.getWaitDurationInOpenStateJitter() / 100);
+		return waitDuration;
+	}
+	
+	@Override
+	public long getCallCount() {
+		return 0;
+	}
+	
+	@Override
+	public long getFailureCallCount() {
+		return 0;
+	}
+	
+	@Override
+	public long getSlowCallDurationCount() {
+		return 0;
 	}
 	
 	@Override
@@ -17,13 +59,15 @@ class BreakerOpenState implements BreakerStateInterface {
 	
 	@Override
 	public boolean isClosedForThisCall() {
-		//check if need to move to half-open
-		if(System.currentTimeMillis() >= openStateEndTimestamp) {
+		//check if need to move to half-open. Only one thread performs the transition, all re-read the new state.
+		//The token is read first, so that the end timestamp of a previous OPEN period can not end this one
+		long stateToken = circuitBreaker.getStateToken();
+		if(clock.currentTimeMillis() >= openStateEndTimestamp) {
 			if(circuitBreaker.getCircuitBreakerConfig().getPermittedNumberOfCallsInHalfOpenState() == 0)
-				circuitBreaker.moveToClosedState("WaitDurationInOpenState is over and permittedNumberOfCallsInHalfOpenState=0");
+				circuitBreaker.moveToClosedState(this, stateToken, StateChangeReason.WAIT_DURATION_IN_OPEN_STATE_OVER_NO_HALF_OPEN);
 			else	
-				circuitBreaker.moveToHalfOpenState("WaitDurationInOpenState is over");
-			return circuitBreaker.isClosedForThisCall();
+				circuitBreaker.moveToHalfOpenState(this, stateToken, StateChangeReason.WAIT_DURATION_IN_OPEN_STATE_OVER);
+			return circuitBreaker.isClosedForThisCallAfterTransition(this);
 		}
 		//no need. Remain in open state
 		return false;
@@ -1,21 +1,82 @@
 package com.geckotechnology.simpleCircuitBreaker;
 
+import java.util.Iterator;
+import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class BreakerStateEventManager {
+/**
+ * Notifies the listeners of state change events. Events are queued in a bounded queue owned by this manager
+ * and delivered in order by a task running on the executor. One manager can be shared by several breakers.
+ * Default managers share one daemon thread, only created once a listener is registered on any of them.
+ */
+public class BreakerStateEventManager implements AutoCloseable {
+	
+	private static final int QUEUE_CAPACITY_DEFAULT = 1000;
+	private static final EventQueueOverflowPolicy OVERFLOW_POLICY_DEFAULT = EventQueueOverflowPolicy.DROP_OLDEST;
+	private static final String DEFAULT_EXECUTOR_THREAD_NAME = "SimpleCircuitBreaker-EventDispatcher";
+	private static final Object defaultExecutorLock = new Object();
+	private static volatile ExecutorService defaultExecutor = null;
+	//set while the current thread delivers events of any manager. Blocking it could stop the queue it has to drain
+	private static final ThreadLocal<Boolean> isDispatcherThread = new ThreadLocal<Boolean>();
 	
 	private final CopyOnWriteArrayList<BreakerStateEventListener> breakerStateEventListeners;
-	private static final ExecutorService eventProcessorExecutor = Executors.newSingleThreadExecutor();
+	//null for the shared default executor
+	private final Executor executor;
+	private final EventQueueOverflowPolicy overflowPolicy;
+	private final LinkedBlockingDeque<CircuitBreakerStateChangeEvent> eventQueue;
+	private final AtomicBoolean isDispatchScheduled = new AtomicBoolean();
+	private final AtomicLong queuedEventCount = new AtomicLong();
+	private final AtomicLong droppedEventCount = new AtomicLong();
+	private final Runnable dispatchTask = new Runnable() {
+		@Override
+		public void run() {
+			dispatchEvents();
+		}
+	};
 	
+	/**
+	 * Manager using the executor shared by all default managers, a queue of 1000 events and DROP_OLDEST policy
+	 */
 	public BreakerStateEventManager() {
 		breakerStateEventListeners = new CopyOnWriteArrayList<BreakerStateEventListener>();
+		executor = null;
+		overflowPolicy = OVERFLOW_POLICY_DEFAULT;
+		eventQueue = new LinkedBlockingDeque<CircuitBreakerStateChangeEvent>(QUEUE_CAPACITY_DEFAULT);
+	}
+	
+	/**
+	 * @param executor runs the listeners. Events of this manager are delivered one at a time, in order,
+	 * even if the executor has several threads
+	 * @param queueCapacity maximum number of events waiting for delivery
+	 * @param overflowPolicy what to do with a new event when the queue is full
+	 */
+	public BreakerStateEventManager(Executor executor, int queueCapacity, EventQueueOverflowPolicy overflowPolicy) {
+		if(executor == null)
+			throw new IllegalArgumentException("executor can not be null");
+		if(queueCapacity <= 0)
+			throw new IllegalArgumentException("queueCapacity must be greater than 0");
+		if(overflowPolicy == null)
+			throw new IllegalArgumentException("overflowPolicy can not be null");
+		breakerStateEventListeners = new CopyOnWriteArrayList<BreakerStateEventListener>();
+		this.executor = executor;
+		this.overflowPolicy = overflowPolicy;
+		eventQueue = new LinkedBlockingDeque<CircuitBreakerStateChangeEvent>(queueCapacity);
 	}
 	
 	public void addBreakerStateEventListener(BreakerStateEventListener listener) {
 		if(listener == null)
 			throw new IllegalArgumentException("listener can not be null");
+		if(executor == null)
+			getDefaultExecutor();
 		breakerStateEventListeners.add(listener);
 	}
 	
@@ -37,15 +98,179 @@ public class BreakerStateEventManager {
 		breakerStateEventListeners.clear();
 	}
 	
+	/**
+	 * Remove all listeners and discard the events not delivered yet. An executor given to the constructor is not shut down,
+	 * it belongs to the caller. The manager can still be used afterwards
+	 */
+	@Override
+	public void close() {
+		breakerStateEventListeners.clear();
+		eventQueue.clear();
+	}
+	
+	/**
+	 * Stop the thread shared by default managers, after it delivers the events already queued. As it is a daemon thread,
+	 * applications wanting all events delivered call this method before exiting. A later listener or event starts a new thread
+	 * @param timeoutMillis maximum time to wait for the pending events
+	 * @return true if the thread is stopped or was never started, false if the timeout elapsed
+	 * @throws InterruptedException
+	 */
+	public static boolean shutdownDefaultExecutor(long timeoutMillis) throws InterruptedException {
+		ExecutorService executorService;
+		synchronized(defaultExecutorLock) {
+			executorService = defaultExecutor;
+			defaultExecutor = null;
+		}
+		if(executorService == null)
+			return true;
+		executorService.shutdown();
+		return executorService.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * @return number of events accepted in the queue since creation
+	 */
+	public long getQueuedEventCount() {
+		return queuedEventCount.get();
+	}
+	
+	/**
+	 * @return number of events dropped because the queue was full, since creation
+	 */
+	public long getDroppedEventCount() {
+		return droppedEventCount.get();
+	}
+	
+	/**
+	 * @return number of events waiting for delivery
+	 */
+	public int getPendingEventCount() {
+		return eventQueue.size();
+	}
+	
     //------ Only Private and Default access methods bellow --------------------------
     
+	/**
+	 * Lets the breaker skip building the event when nobody listens
+	 * @return true if at least one listener is registered
+	 */
+	boolean hasListeners() {
+		return !breakerStateEventListeners.isEmpty();
+	}
+	
 	void registerEvent(final CircuitBreakerStateChangeEvent event) {
 		//check if any listener. If not, then no point adding to the queue
 		if(breakerStateEventListeners.size() == 0)
 			return;
-		eventProcessorExecutor.submit(new Runnable() {
-			@Override
-			public void run() {
+		if(!eventQueue.offerLast(event)) {
+			switch(overflowPolicy) {
+			case DROP_OLDEST:
+				while(!eventQueue.offerLast(event)) {
+					if(eventQueue.pollFirst() != null)
+						droppedEventCount.incrementAndGet();
+				}
+				break;
+			case COALESCE:
+				while(!eventQueue.offerLast(event)) {
+					//pending events of the same breaker are superseded, other breakers keep theirs
+					int removedEventCount = removePendingEvents(event.getCircuitBreakerName());
+					if(removedEventCount == 0 && eventQueue.pollFirst() != null)
+						removedEventCount = 1;
+					droppedEventCount.addAndGet(removedEventCount);
+				}
+				break;
+			case BLOCK:
+				if(isDispatcherThread.get() != null) {
+					//a listener moving a breaker would wait for itself to drain the queue, the oldest event is dropped instead
+					while(!eventQueue.offerLast(event)) {
+						if(eventQueue.pollFirst() != null)
+							droppedEventCount.incrementAndGet();
+					}
+					break;
+				}
+				try {
+					eventQueue.putLast(event);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					droppedEventCount.incrementAndGet();
+					return;
+				}
+				break;
+			}
+		}
+		queuedEventCount.incrementAndGet();
+		scheduleDispatch();
+	}
+	
+	/**
+	 * Only called when the queue is full
+	 * @return number of events removed
+	 */
+	private int removePendingEvents(String circuitBreakerName) {
+		int removedEventCount = 0;
+		for(Iterator<CircuitBreakerStateChangeEvent> iterator = eventQueue.iterator(); iterator.hasNext(); ) {
+			CircuitBreakerStateChangeEvent pendingEvent = iterator.next();
+			if(Objects.equals(pendingEvent.getCircuitBreakerName(), circuitBreakerName) &&
+					eventQueue.removeFirstOccurrence(pendingEvent))
+				removedEventCount++;
+		}
+		return removedEventCount;
+	}
+	
+	/**
+	 * At most one dispatch task per manager is submitted at any time
+	 */
+	private void scheduleDispatch() {
+		if(!isDispatchScheduled.compareAndSet(false, true))
+			return;
+		try {
+			if(executor == null)
+				getDefaultExecutor().execute(dispatchTask);
+			else
+				executor.execute(dispatchTask);
+		}
+		catch(RejectedExecutionException e) {
+			isDispatchScheduled.set(false);
+			System.err.println("Event executor rejected the event dispatch. pendingEventCount:" + eventQueue.size());
+		}
+	}
+	
+	/**
+	 * The single thread executor creates its thread when the first event is dispatched
+	 */
+	private static ExecutorService getDefaultExecutor() {
+		ExecutorService executorService = defaultExecutor;
+		if(executorService != null)
+			return executorService;
+		synchronized(defaultExecutorLock) {
+			if(defaultExecutor == null) {
+				defaultExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, DEFAULT_EXECUTOR_THREAD_NAME);
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			}
+			return defaultExecutor;
+		}
+	}
+	
+	private void dispatchEvents() {
+		isDispatcherThread.set(Boolean.TRUE);
+		try {
+			dispatchQueuedEvents();
+		}
+		finally {
+			isDispatcherThread.remove();
+		}
+	}
+	
+	private void dispatchQueuedEvents() {
+		while(true) {
+			CircuitBreakerStateChangeEvent event;
+			while((event = eventQueue.pollFirst()) != null) {
 				for(BreakerStateEventListener listener:breakerStateEventListeners) {
 					try {
 						listener.onCircuitBreakerStateChangeEvent(event);
@@ -55,8 +280,12 @@ public class BreakerStateEventManager {
 								event + "}, listener:{" + listener + "}");
 						e.printStackTrace();
 					}
-				}				
+				}
 			}
-		});
+			isDispatchScheduled.set(false);
+			//an event may have been queued after the last poll and before the flag was cleared
+			if(eventQueue.isEmpty() || !isDispatchScheduled.compareAndSet(false, true))
+				return;
+		}
 	}
 }
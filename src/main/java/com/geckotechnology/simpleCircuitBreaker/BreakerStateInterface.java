@@ -5,4 +5,14 @@ interface BreakerStateInterface {
     void callFailed(long callDuration);
     void callSucceeded(long callDuration);
     BreakerStateType getBreakerStateType();
+    /**
+     * Called by the breaker, before this state object becomes the current state again. Must not allocate
+     */
+    void reset();
+    /**
+     * Counts of this state, for the metrics. Read without lock and without allocation, each count separately
+     */
+    long getCallCount();
+    long getFailureCallCount();
+    long getSlowCallDurationCount();
 }
\ No newline at end of file
@@ -0,0 +1,184 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the number of calls in progress. Permits are taken with a CAS on a counter, so the normal path is lock-free.
+ * Only threads waiting for a permit, when maxWaitDuration is set, use the monitor of this object.
+ * When minConcurrentCalls is below maxConcurrentCalls, the limit adapts between both with AIMD, as TCP congestion control:
+ * +1 for a call neither failed nor slow while at least half of the limit is in use, x0.9 for a failed or slow call.
+ * The latency gradient also decreases it, well before calls are slow: the short-term average call duration (last ~10 calls)
+ * is compared to the long-term one (last ~500 calls), and once it is more than twice as high, each successful call
+ * reduces the limit by up to 10%. A lasting change of latency ends up in the long-term average, so the limit grows again
+ */
+class Bulkhead {
+
+	private static final float LIMIT_DECREASE_RATIO = 0.9f;
+	private static final double SHORT_TERM_WEIGHT = 0.1;
+	private static final double LONG_TERM_WEIGHT = 0.002;
+	//short-term average tolerated above the long-term one, before the gradient goes below 1
+	private static final double LATENCY_TOLERANCE = 2;
+	//the decrease is (1 - gradient) x GRADIENT_SMOOTHING, at most 10% with a gradient of 0.5
+	private static final double MIN_GRADIENT = 0.5;
+	private static final double GRADIENT_SMOOTHING = 0.2;
+	private final AtomicInteger concurrentCallCount = new AtomicInteger();
+	private final AtomicInteger waitingThreadCount = new AtomicInteger();
+	private final LongAdder rejectedCallCount = new LongAdder();
+	private final AtomicInteger concurrencyLimit = new AtomicInteger();
+	private final int minConcurrentCalls;
+	private final int maxConcurrentCalls;
+	private final long maxWaitDuration;
+	//exponential moving averages of the successful call durations in ms, -1 before the first call. Concurrent updates
+	//may overwrite each other, which only drops a sample
+	private volatile double shortTermCallDuration = -1;
+	private volatile double longTermCallDuration = -1;
+
+	/**
+	 * @param maxConcurrentCalls positive, the initial limit
+	 * @param minConcurrentCalls lowest adaptive limit, maxConcurrentCalls or 0 for a fixed limit
+	 * @param maxWaitDuration in ms, 0 to reject immediately when all permits are taken
+	 */
+	Bulkhead(int maxConcurrentCalls, int minConcurrentCalls, long maxWaitDuration) {
+		this.maxConcurrentCalls = maxConcurrentCalls;
+		this.minConcurrentCalls = minConcurrentCalls == 0 ? maxConcurrentCalls : minConcurrentCalls;
+		this.maxWaitDuration = maxWaitDuration;
+		concurrencyLimit.set(maxConcurrentCalls);
+	}
+
+	boolean isAdaptive() {
+		return minConcurrentCalls < maxConcurrentCalls;
+	}
+
+	/**
+	 * @return true if the call can proceed, then release() must be called once it is over
+	 */
+	boolean tryAcquire() {
+		if(tryAcquireWithoutWait())
+			return true;
+		if(maxWaitDuration > 0 && tryAcquireWithWait())
+			return true;
+		rejectedCallCount.increment();
+		return false;
+	}
+
+	/**
+	 * Never goes under 0, in case a call outcome is reported without a permit
+	 */
+	void release() {
+		while(true) {
+			int count = concurrentCallCount.get();
+			if(count == 0)
+				break;
+			if(concurrentCallCount.compareAndSet(count, count - 1))
+				break;
+		}
+		if(waitingThreadCount.get() > 0) {
+			synchronized(this) {
+				notify();
+			}
+		}
+	}
+
+	int getConcurrentCallCount() {
+		return concurrentCallCount.get();
+	}
+
+	long getRejectedCallCount() {
+		return rejectedCallCount.sum();
+	}
+
+	int getConcurrencyLimit() {
+		return concurrencyLimit.get();
+	}
+
+	/**
+	 * Adjusts the adaptive limit, to be called before release() so that the call is still counted in progress.
+	 * A decrease does not interrupt calls in progress, further calls wait for enough of them to end
+	 * @param isFailureOrSlowCall true to decrease the limit
+	 * @param callDuration in ms, only used for calls neither failed nor slow
+	 */
+	void adaptConcurrencyLimit(boolean isFailureOrSlowCall, long callDuration) {
+		double gradient = isFailureOrSlowCall ? 1 : updateLatencyGradient(callDuration);
+		while(true) {
+			int limit = concurrencyLimit.get();
+			int newLimit;
+			if(isFailureOrSlowCall)
+				newLimit = Math.max(minConcurrentCalls, (int)(limit * LIMIT_DECREASE_RATIO));
+			else if(gradient < 1)
+				newLimit = Math.max(minConcurrentCalls, (int)(limit * (1 - (1 - gradient) * GRADIENT_SMOOTHING)));
+			else if(concurrentCallCount.get() * 2 >= limit)
+				newLimit = Math.min(maxConcurrentCalls, limit + 1);
+			else
+				//limit not used, no evidence that a higher one would be safe
+				return;
+			if(newLimit == limit || concurrencyLimit.compareAndSet(limit, newLimit))
+				return;
+		}
+	}
+
+	/**
+	 * @return LATENCY_TOLERANCE x long-term / short-term average call duration, between MIN_GRADIENT and 1.
+	 * Below 1 when latency grows faster than the long-term average follows
+	 */
+	private double updateLatencyGradient(long callDuration) {
+		double shortTerm = shortTermCallDuration;
+		double longTerm = longTermCallDuration;
+		if(shortTerm < 0) {
+			shortTerm = callDuration;
+			longTerm = callDuration;
+		}
+		else {
+			shortTerm += (callDuration - shortTerm) * SHORT_TERM_WEIGHT;
+			longTerm += (callDuration - longTerm) * LONG_TERM_WEIGHT;
+		}
+		shortTermCallDuration = shortTerm;
+		longTermCallDuration = longTerm;
+		//durations under 1 ms are not precise enough to tell a trend
+		double toleratedCallDuration = LATENCY_TOLERANCE * Math.max(1, longTerm);
+		if(shortTerm <= toleratedCallDuration)
+			return 1;
+		return Math.max(MIN_GRADIENT, toleratedCallDuration / shortTerm);
+	}
+
+	/**
+	 * Same as tryAcquire() without waiting, a refused permit is not counted as a rejected call
+	 */
+	boolean tryAcquireWithoutWait() {
+		while(true) {
+			int count = concurrentCallCount.get();
+			if(count >= concurrencyLimit.get())
+				return false;
+			if(concurrentCallCount.compareAndSet(count, count + 1))
+				return true;
+		}
+	}
+
+	/**
+	 * waitingThreadCount is incremented before the last attempt made under the monitor, so a release() happening
+	 * after this attempt always sees it and notifies
+	 */
+	private boolean tryAcquireWithWait() {
+		long deadline = System.nanoTime() + maxWaitDuration * 1000000L;
+		waitingThreadCount.incrementAndGet();
+		try {
+			synchronized(this) {
+				while(true) {
+					if(tryAcquireWithoutWait())
+						return true;
+					long remainingTime = deadline - System.nanoTime();
+					if(remainingTime <= 0)
+						return false;
+					wait(remainingTime / 1000000L, (int)(remainingTime % 1000000L));
+				}
+			}
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		finally {
+			waitingThreadCount.decrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+/**
+ * Thrown by CircuitBreaker.execute() and run() when the breaker does not permit the call.
+ * Each breaker throws the same instance, created with the breaker and without stack trace,
+ * so rejecting a call allocates nothing. Suppressed exceptions are disabled, as the instance is shared.
+ */
+public class CallNotPermittedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+	private final String circuitBreakerName;
+	
+	CallNotPermittedException(String circuitBreakerName) {
+		super(null, null, false, false);
+		this.circuitBreakerName = circuitBreakerName;
+	}
+	
+	/**
+	 * Message is built on demand, as most callers never read it
+	 */
+	@Override
+	public String getMessage() {
+		return "CircuitBreaker does not permit the call. circuitBreakerName:" + circuitBreakerName;
+	}
+	
+	public String getCircuitBreakerName() {
+		return circuitBreakerName;
+	}
+}
@@ -1,21 +1,123 @@
 package com.geckotechnology.simpleCircuitBreaker;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
 public class CircuitBreaker {
 
-    private static final String INIT_REASON = "initial state";
-    private BreakerStateInterface breakerState;
+    //estimated sizes, 64-bit HotSpot JVM with compressed oops. The base is the breaker, its config, event manager and
+    //state objects without the sliding windows, calibrated against the allocation measured by CircuitBreakerRegistryTest.
+    //The others add up the object layouts: header, fields and alignment to 8 bytes
+    private static final long ESTIMATED_BASE_MEMORY_FOOTPRINT = 1008;
+    private static final long ESTIMATED_BULKHEAD_MEMORY_FOOTPRINT = 144;
+    private static final long ESTIMATED_RATE_LIMITER_MEMORY_FOOTPRINT = 96;
+    //settings and retry budget counter
+    private static final long ESTIMATED_RETRY_MEMORY_FOOTPRINT = 136;
+
+    //state token: ordinal of the current state type in the low bits, then a flag set while a transition is in progress,
+    //then a generation incremented by each transition, so that a state left and entered again never matches an old token
+    private static final long STATE_TYPE_MASK = 0x7;
+    private static final long TRANSITION_IN_PROGRESS = 0x8;
+    private static final long GENERATION_INCREMENT = 0x10;
+
+    private final AtomicLong stateToken = new AtomicLong(TRANSITION_IN_PROGRESS);
+    //OPEN periods since the calls last went through a CLOSED state proven healthy, for the backoff of waitDurationInOpenState.
+    //Only written by the thread performing a transition, before the token is published
+    private int consecutiveOpenCount;
+    //indexed by BreakerStateType ordinal
+    private final BreakerStateInterface states[] = new BreakerStateInterface[BreakerStateType.values().length];
     private final CircuitBreakerConfig circuitBreakerConfig;
     private final BreakerStateEventManager breakerStateEventManager;
+    //state objects are created once and reset when the breaker moves back to them
+    private final BreakerStateInterface closedState;
+    private final BreakerStateInterface openState;
+    private final BreakerStateInterface halfOpenState;
+    private final BreakerStateInterface disabledState;
+    private final BreakerStateInterface forcedOpenState;
+    private final LongAdder notPermittedCallCount = new LongAdder();
+    //null if maxConcurrentCalls is 0
+    private final Bulkhead bulkhead;
+    //null if limitForPeriod is 0
+    private final RateLimiter rateLimiter;
+    //null if maxRetryAttempts is 0
+    private final Retry retry;
+    //hedged calls of the current period, null if hedgingBudgetPercentage is 0
+    private final RateLimiter hedgeCounter;
+    //thrown by execute() and run(), created once so that rejections do not allocate
+    private final CallNotPermittedException callNotPermittedException;
+    //breaker clock time of the last transition
+    private volatile long stateChangeTimestamp;
 
     public CircuitBreaker(CircuitBreakerConfig aCircuitBreakerDefinition) {
+    	this(aCircuitBreakerDefinition, new BreakerStateEventManager());
+    }
+    
+    /**
+     * Constructor with an event manager, for example one with its own executor or queue, or shared by several breakers
+     */
+    public CircuitBreaker(CircuitBreakerConfig aCircuitBreakerDefinition, BreakerStateEventManager breakerStateEventManager) {
+    	if(breakerStateEventManager == null)
+    		throw new IllegalArgumentException("breakerStateEventManager can not be null");
     	circuitBreakerConfig = aCircuitBreakerDefinition.clone();
-    	breakerStateEventManager = new BreakerStateEventManager();
+    	this.breakerStateEventManager = breakerStateEventManager;
+    	callNotPermittedException = new CallNotPermittedException(circuitBreakerConfig.getName());
+    	if(circuitBreakerConfig.getMinConcurrentCalls() > circuitBreakerConfig.getMaxConcurrentCalls())
+    		throw new IllegalArgumentException("minConcurrentCalls can not be above maxConcurrentCalls");
+    	if(circuitBreakerConfig.getMaxConcurrentCalls() > 0)
+    		bulkhead = new Bulkhead(circuitBreakerConfig.getMaxConcurrentCalls(), circuitBreakerConfig.getMinConcurrentCalls(),
+    				circuitBreakerConfig.getMaxWaitDurationInBulkhead());
+    	else
+    		bulkhead = null;
+    	if(circuitBreakerConfig.getLimitForPeriod() > 0)
+    		rateLimiter = new RateLimiter(circuitBreakerConfig.getLimitForPeriod(), circuitBreakerConfig.getLimitRefreshPeriod(),
+    				circuitBreakerConfig.getClock());
+    	else
+    		rateLimiter = null;
+    	if(circuitBreakerConfig.getMaxRetryAttempts() > 0)
+    		retry = new Retry(circuitBreakerConfig);
+    	else
+    		retry = null;
+    	if(circuitBreakerConfig.getHedgingBudgetPercentage() > 0)
+    		hedgeCounter = new RateLimiter(Integer.MAX_VALUE, circuitBreakerConfig.getBudgetPeriod(), circuitBreakerConfig.getClock());
+    	else
+    		hedgeCounter = null;
+    	if(circuitBreakerConfig.getSlidingWindowSize() > 0) {
+    		closedState = new BreakerClosedState(this);
+    		openState = new BreakerOpenState(this);
+    		halfOpenState = new BreakerHalfOpenState(this);
+    	}
+    	else {
+    		//breaker stays in DISABLED or FORCED_OPEN state forever
+    		closedState = null;
+    		openState = null;
+    		halfOpenState = null;
+    	}
+    	disabledState = new BreakerDisabledState(this);
+    	forcedOpenState = new BreakerForcedOpenState(this);
+    	states[BreakerStateType.CLOSED.ordinal()] = closedState;
+    	states[BreakerStateType.OPEN.ordinal()] = openState;
+    	states[BreakerStateType.HALF_OPEN.ordinal()] = halfOpenState;
+    	states[BreakerStateType.DISABLED.ordinal()] = disabledState;
+    	states[BreakerStateType.FORCED_OPEN.ordinal()] = forcedOpenState;
     	if(circuitBreakerConfig.getSlidingWindowSize() > 0)
-    		moveToClosedState(INIT_REASON);
+    		moveToInitialState(closedState);
     	else if(circuitBreakerConfig.getSlidingWindowSize() == 0)
-    		moveToDisabledState(INIT_REASON);
+    		moveToInitialState(disabledState);
     	else if(circuitBreakerConfig.getSlidingWindowSize() == -1)
-    		moveToForcedOpenState(INIT_REASON);
+    		moveToInitialState(forcedOpenState);
     }
     
     public BreakerStateEventManager getBreakerStateEventManager() {
@@ -26,60 +128,639 @@ public class CircuitBreaker {
     	return circuitBreakerConfig.clone();
     }
     
-    public synchronized boolean isClosedForThisCall() {
-    	return breakerState.isClosedForThisCall();
+    /**
+     * The rate limiter, if limitForPeriod is set, is checked first. A call rejected afterwards keeps its rate limiter permit.
+     * The bulkhead permit, if maxConcurrentCalls is set, is taken next so that a HALF_OPEN permit is never
+     * consumed by a call the bulkhead rejects. It is given back if the state does not permit the call
+     */
+    public boolean isClosedForThisCall() {
+    	if(rateLimiter != null && !rateLimiter.tryAcquire()) {
+    		notPermittedCallCount.increment();
+    		return false;
+    	}
+    	if(bulkhead != null) {
+    		if(!bulkhead.tryAcquire()) {
+    			notPermittedCallCount.increment();
+    			return false;
+    		}
+    		if(getBreakerState().isClosedForThisCall())
+    			return true;
+    		bulkhead.release();
+    	}
+    	else if(getBreakerState().isClosedForThisCall())
+    		return true;
+    	notPermittedCallCount.increment();
+    	return false;
     }
-    public synchronized void callFailed(long callDuration) {
-   		breakerState.callFailed(callDuration);
+    public void callFailed(long callDuration) {
+   		getBreakerState().callFailed(callDuration);
+   		if(bulkhead != null) {
+   			if(bulkhead.isAdaptive())
+   				bulkhead.adaptConcurrencyLimit(true, callDuration);
+   			bulkhead.release();
+   		}
     }
-    public synchronized void callSucceeded(long callDuration) {
-   		breakerState.callSucceeded(callDuration);
+    public void callSucceeded(long callDuration) {
+   		getBreakerState().callSucceeded(callDuration);
+   		if(bulkhead != null) {
+   			if(bulkhead.isAdaptive())
+   				bulkhead.adaptConcurrencyLimit(isSlowCall(callDuration), callDuration);
+   			bulkhead.release();
+   		}
+    }
+    
+    /**
+     * Runs callable if the breaker permits the call, and records its outcome and duration measured with System.nanoTime().
+     * Exceptions are recorded according to the exceptionClassifier of the config, then thrown again
+     * @return the value returned by callable
+     * @throws CallNotPermittedException if the breaker does not permit the call, always the same instance for a breaker
+     * @throws Exception thrown by callable
+     */
+    public <T> T execute(Callable<T> callable) throws Exception {
+    	if(!isClosedForThisCall())
+    		throw callNotPermittedException;
+    	long startTime = System.nanoTime();
+    	T result;
+    	try {
+    		result = callable.call();
+    	}
+    	catch(Throwable t) {
+    		callThrew(startTime, t);
+    		throw t;
+    	}
+    	callSucceeded((System.nanoTime() - startTime) / 1000000L);
+    	return result;
+    }
+    
+    /**
+     * Same as execute(Callable), retrying up to maxRetryAttempts times a call whose exception is a failure for the
+     * exceptionClassifier. The thread sleeps between attempts, with an exponential backoff and jitter.
+     * Retries stop as soon as the breaker is neither CLOSED nor DISABLED, or the retry budget is used,
+     * so that retries do not add load to a service already failing. A DISABLED breaker has no window, its budget is
+     * one retry per slidingWindowBucketWidth period, unless retryBudgetPercentage is 0
+     * @return the value returned by the first successful attempt
+     * @throws CallNotPermittedException if the breaker does not permit the first attempt
+     * @throws Exception thrown by the last attempt made
+     */
+    public <T> T executeWithRetry(Callable<T> callable) throws Exception {
+    	if(retry == null)
+    		return execute(callable);
+    	Exception lastException = null;
+    	for(int retryAttempt = 1; ; retryAttempt++) {
+    		try {
+    			return execute(callable);
+    		}
+    		catch(Exception e) {
+    			if(e == callNotPermittedException && lastException != null)
+    				//breaker opened during the wait
+    				throw lastException;
+    			if(!isRetryPermitted(retryAttempt, e))
+    				throw e;
+    			lastException = e;
+    		}
+    		try {
+    			Thread.sleep(retry.getWaitDuration(retryAttempt));
+    		}
+    		catch(InterruptedException e) {
+    			Thread.currentThread().interrupt();
+    			throw lastException;
+    		}
+    	}
+    }
+    
+    /**
+     * Same as execute(Callable), the call running in executorService. If it is not over after the hedgingPercentile
+     * call duration of the window, the same call is sent again, and the first successful one wins. The other one is
+     * cancelled with an interrupt. Only the outcome of the winner, or of the last failure, is recorded, so that
+     * hedging does not add failures to the window. Hedged calls are only sent in CLOSED state, within
+     * hedgingBudgetPercentage, and need latencyHistogramEnabled to know the window call durations. A hedged call also takes
+     * a rate limiter permit and, without waiting, a bulkhead permit, so hedging never exceeds limitForPeriod or
+     * maxConcurrentCalls. If executorService rejects the call, or the calling thread is interrupted while waiting,
+     * the permit is given back and no outcome is recorded, as the backend did not fail
+     * @return the value returned by the winning call
+     * @throws CallNotPermittedException if the breaker does not permit the call, always the same instance for a breaker
+     * @throws RejectedExecutionException if executorService rejects the call
+     * @throws Exception thrown by callable, or InterruptedException if the calling thread is interrupted while waiting
+     */
+    public <T> T executeHedged(Callable<T> callable, ExecutorService executorService) throws Exception {
+    	if(!isClosedForThisCall())
+    		throw callNotPermittedException;
+    	long hedgeDelay = getHedgeDelay();
+    	long startTime = System.nanoTime();
+    	CompletionService<T> completionService = new ExecutorCompletionService<T>(executorService);
+    	Future<T> attempt = null;
+    	Future<T> hedgedAttempt = null;
+    	T result;
+    	try {
+    		attempt = completionService.submit(callable);
+    		Future<T> completedAttempt = null;
+    		if(hedgeDelay >= 0) {
+    			completedAttempt = completionService.poll(hedgeDelay, TimeUnit.MILLISECONDS);
+    			if(completedAttempt == null)
+    				hedgedAttempt = submitHedgedAttempt(completionService, callable);
+    		}
+    		if(completedAttempt == null)
+    			completedAttempt = completionService.take();
+    		if(hedgedAttempt != null && !isSuccessful(completedAttempt))
+    			//the other call may still succeed
+    			completedAttempt = completionService.take();
+    		result = completedAttempt.get();
+    	}
+    	catch(RejectedExecutionException | InterruptedException e) {
+    		//thrown by the executor or the wait, not by callable: the call was not sent or its outcome is not known
+    		releasePermit();
+    		throw e;
+    	}
+    	catch(ExecutionException e) {
+    		callThrew(startTime, e.getCause());
+    		throw getCause(e);
+    	}
+    	catch(Throwable t) {
+    		callThrew(startTime, t);
+    		throw t;
+    	}
+    	finally {
+    		//no effect on a call already over
+    		if(attempt != null)
+    			attempt.cancel(true);
+    		if(hedgedAttempt != null) {
+    			hedgedAttempt.cancel(true);
+    			if(bulkhead != null)
+    				bulkhead.release();
+    		}
+    	}
+    	callSucceeded((System.nanoTime() - startTime) / 1000000L);
+    	return result;
+    }
+    
+    /**
+     * Same as execute(Callable), the call running in executorService with a deadline of timeoutDuration,
+     * or slowCallDurationThreshold if timeoutDuration is 0. Once the deadline is reached, the call is cancelled with an interrupt
+     * and a TimeoutException is recorded right away according to the exceptionClassifier, with the deadline as duration.
+     * So the calling thread is freed and the breaker learns about a hung call without waiting for it to end.
+     * There is no deadline if both durations are 0. If executorService rejects the call, or the calling thread is interrupted
+     * while waiting, the permit is given back and no outcome is recorded, as the backend did not fail
+     * @return the value returned by callable
+     * @throws CallNotPermittedException if the breaker does not permit the call, always the same instance for a breaker
+     * @throws TimeoutException if the deadline is reached
+     * @throws RejectedExecutionException if executorService rejects the call
+     * @throws Exception thrown by callable, or InterruptedException if the calling thread is interrupted while waiting
+     */
+    public <T> T executeWithTimeout(Callable<T> callable, ExecutorService executorService) throws Exception {
+    	if(!isClosedForThisCall())
+    		throw callNotPermittedException;
+    	long timeout = circuitBreakerConfig.getTimeoutDuration() > 0 ?
+    			circuitBreakerConfig.getTimeoutDuration() : circuitBreakerConfig.getSlowCallDurationThreshold();
+    	long startTime = System.nanoTime();
+    	Future<T> future = null;
+    	T result;
+    	try {
+    		future = executorService.submit(callable);
+    		if(timeout > 0)
+    			result = future.get(timeout, TimeUnit.MILLISECONDS);
+    		else
+    			result = future.get();
+    	}
+    	catch(RejectedExecutionException | InterruptedException e) {
+    		//thrown by the executor or the wait, not by callable: the call was not sent or its outcome is not known
+    		releasePermit();
+    		throw e;
+    	}
+    	catch(ExecutionException e) {
+    		callThrew(startTime, e.getCause());
+    		throw getCause(e);
+    	}
+    	catch(Throwable t) {
+    		callThrew(startTime, t);
+    		throw t;
+    	}
+    	finally {
+    		//no effect on a call already over
+    		if(future != null)
+    			future.cancel(true);
+    	}
+    	callSucceeded((System.nanoTime() - startTime) / 1000000L);
+    	return result;
+    }
+    
+    /**
+     * Same as execute(Callable), keeping the results in fallbackCache so that the calls the breaker does not permit
+     * are answered with the last known good result of the same key, instead of CallNotPermittedException.
+     * Exceptions thrown by callable are not replaced by a cached result
+     * @param key key of the result in fallbackCache, for example the request URL
+     * @return the value returned by callable, or the cached one if the breaker does not permit the call
+     * @throws CallNotPermittedException if the breaker does not permit the call and there is no valid cached result
+     * @throws Exception thrown by callable
+     */
+    public <K, V> V executeWithFallback(K key, Callable<V> callable, FallbackCache<K, V> fallbackCache) throws Exception {
+    	if(!isClosedForThisCall()) {
+    		V cachedResult = fallbackCache.get(key);
+    		if(cachedResult == null)
+    			throw callNotPermittedException;
+    		return cachedResult;
+    	}
+    	long startTime = System.nanoTime();
+    	V result;
+    	try {
+    		result = callable.call();
+    	}
+    	catch(Throwable t) {
+    		callThrew(startTime, t);
+    		throw t;
+    	}
+    	callSucceeded((System.nanoTime() - startTime) / 1000000L);
+    	if(result != null)
+    		fallbackCache.put(key, result);
+    	return result;
+    }
+    
+    /**
+     * Same as execute(Callable) for a Supplier, which can not throw checked exceptions
+     * @throws CallNotPermittedException if the breaker does not permit the call, always the same instance for a breaker
+     */
+    public <T> T executeSupplier(Supplier<T> supplier) {
+    	if(!isClosedForThisCall())
+    		throw callNotPermittedException;
+    	long startTime = System.nanoTime();
+    	T result;
+    	try {
+    		result = supplier.get();
+    	}
+    	catch(Throwable t) {
+    		callThrew(startTime, t);
+    		throw t;
+    	}
+    	callSucceeded((System.nanoTime() - startTime) / 1000000L);
+    	return result;
+    }
+    
+    /**
+     * Asynchronous version of execute(Callable), for non-blocking clients. The outcome is recorded by the thread
+     * completing the stage returned by supplier, no thread waits for it. The duration covers supplier.get() and the completion
+     * @return a stage completed as the one returned by supplier, once its outcome is recorded.
+     * If the breaker does not permit the call, a stage already completed with CallNotPermittedException.
+     * If supplier throws or returns null, a stage already completed with that exception or a NullPointerException, recorded as a failure
+     */
+    public <T> CompletionStage<T> executeAsync(Supplier<? extends CompletionStage<T>> supplier) {
+    	if(!isClosedForThisCall())
+    		return failedFuture(callNotPermittedException);
+    	final long startTime = System.nanoTime();
+    	CompletionStage<T> stage;
+    	try {
+    		stage = supplier.get();
+    		if(stage == null)
+    			throw new NullPointerException("supplier returned a null stage");
+    	}
+    	catch(Throwable t) {
+    		callThrew(startTime, t);
+    		return failedFuture(t);
+    	}
+    	return stage.whenComplete((result, throwable) -> {
+    		if(throwable == null)
+    			callSucceeded((System.nanoTime() - startTime) / 1000000L);
+    		else if(throwable instanceof CompletionException && throwable.getCause() != null)
+    			callThrew(startTime, throwable.getCause());
+    		else
+    			callThrew(startTime, throwable);
+    	});
+    }
+    
+    /**
+     * Same as execute(Callable) for a Runnable
+     * @throws CallNotPermittedException if the breaker does not permit the call, always the same instance for a breaker
+     */
+    public void run(Runnable runnable) {
+    	if(!isClosedForThisCall())
+    		throw callNotPermittedException;
+    	long startTime = System.nanoTime();
+    	try {
+    		runnable.run();
+    	}
+    	catch(Throwable t) {
+    		callThrew(startTime, t);
+    		throw t;
+    	}
+    	callSucceeded((System.nanoTime() - startTime) / 1000000L);
+    }
+    
+    /**
+     * Snapshot of the current state and counts, taken without any lock. Cheap enough to be called
+     * periodically on every breaker of a large registry
+     * @return a new immutable object
+     */
+    public CircuitBreakerMetrics getMetrics() {
+    	BreakerStateInterface state = getBreakerState();
+    	long timeInState = Math.max(0, circuitBreakerConfig.getClock().currentTimeMillis() - stateChangeTimestamp);
+    	//failure and slow counts are read first, so that a call recorded meanwhile can only lower the rates
+    	long failureCallCount = state.getFailureCallCount();
+    	long slowCallDurationCount = state.getSlowCallDurationCount();
+    	return new CircuitBreakerMetrics(circuitBreakerConfig.getName(), state.getBreakerStateType(),
+    			state.getCallCount(), failureCallCount, slowCallDurationCount,
+    			notPermittedCallCount.sum(),
+    			bulkhead == null ? 0 : bulkhead.getRejectedCallCount(),
+    			bulkhead == null ? 0 : bulkhead.getConcurrentCallCount(),
+    			bulkhead == null ? 0 : bulkhead.getConcurrencyLimit(),
+    			rateLimiter == null ? 0 : rateLimiter.getRejectedCallCount(),
+    			timeInState);
+    }
+    
+    /**
+     * Call duration percentile over the CLOSED state sliding window, when latencyHistogramEnabled is set.
+     * The window of the last CLOSED period is used while the breaker is in another state, its buckets expiring with time.
+     * The returned value is the upper bound of the histogram slot, at most 12.5% above the exact percentile.
+     * Durations of 2^24 ms (4.6 hours) or more are clamped, so the highest value returned is 2^24 - 1 ms
+     * @param percentile between 0 and 100, for example 50, 99 or 99.9
+     * @return duration in ms, -1 if there is no call in the window or latency histograms are not enabled
+     */
+    public long getCallDurationPercentile(double percentile) {
+    	if(percentile < 0 || percentile > 100)
+    		throw new IllegalArgumentException("percentile must be between 0 and 100");
+    	if(closedState == null || !circuitBreakerConfig.isLatencyHistogramEnabled())
+    		return -1;
+    	return ((BreakerClosedState)closedState).getCallDurationPercentile(percentile);
+    }
+    
+    /**
+     * Estimate of the heap used by this breaker, mostly driven by slidingWindowSize, slidingWindowType
+     * and slidingWindowStripeCount. It is not measured: it adds up fixed object sizes of a 64-bit HotSpot JVM with
+     * compressed oops, within about 20% of the real allocation. Other JVMs or settings differ. Listeners are not included
+     * @return estimated size in bytes
+     */
+    public long getEstimatedMemoryFootprint() {
+    	long memoryFootprint = ESTIMATED_BASE_MEMORY_FOOTPRINT;
+    	if(bulkhead != null)
+    		memoryFootprint += ESTIMATED_BULKHEAD_MEMORY_FOOTPRINT;
+    	if(rateLimiter != null)
+    		memoryFootprint += ESTIMATED_RATE_LIMITER_MEMORY_FOOTPRINT;
+    	if(retry != null)
+    		memoryFootprint += ESTIMATED_RETRY_MEMORY_FOOTPRINT;
+    	if(hedgeCounter != null)
+    		memoryFootprint += ESTIMATED_RATE_LIMITER_MEMORY_FOOTPRINT;
+    	if(closedState != null)
+    		memoryFootprint += ((BreakerClosedState)closedState).getEstimatedMemoryFootprint() +
+    				((BreakerHalfOpenState)halfOpenState).getEstimatedMemoryFootprint();
+    	return memoryFootprint;
     }
     
     //------ Only Private and Default access methods bellow --------------------------
     
+    /**
+     * @return the hedgingPercentile call duration of the window in ms, so at least 1 ms. -1 for no hedging, including
+     * when the percentile is below 1 ms, as waiting 0 ms would hedge every call
+     */
+    private long getHedgeDelay() {
+    	if(hedgeCounter == null || getBreakerState() != closedState)
+    		return -1;
+    	long hedgeDelay = getCallDurationPercentile(circuitBreakerConfig.getHedgingPercentile());
+    	if(hedgeDelay <= 0)
+    		return -1;
+    	return hedgeDelay;
+    }
+    
+    /**
+     * @return the hedged attempt, holding a bulkhead permit if maxConcurrentCalls is set, or null if it is not permitted
+     * or executorService rejects it
+     */
+    private <T> Future<T> submitHedgedAttempt(CompletionService<T> completionService, Callable<T> callable) {
+    	if(!tryAcquireHedgePermit())
+    		return null;
+    	try {
+    		return completionService.submit(callable);
+    	}
+    	catch(RejectedExecutionException e) {
+    		if(bulkhead != null)
+    			bulkhead.release();
+    		return null;
+    	}
+    }
+    
+    /**
+     * Takes a hedged call from the rate limiter, the bulkhead without waiting, and the budget of the current period,
+     * if the breaker is still CLOSED. A hedge not sent is not counted as a rejected call
+     */
+    private boolean tryAcquireHedgePermit() {
+    	if(getBreakerState() != closedState)
+    		return false;
+    	if(rateLimiter != null && !rateLimiter.tryAcquire(circuitBreakerConfig.getLimitForPeriod()))
+    		return false;
+    	if(bulkhead != null && !bulkhead.tryAcquireWithoutWait())
+    		return false;
+    	long limit = (long)(((BreakerClosedState)closedState).getCallCount() * circuitBreakerConfig.getHedgingBudgetPercentage() / 100f);
+    	if(hedgeCounter.tryAcquire(Math.min(Integer.MAX_VALUE, limit)))
+    		return true;
+    	if(bulkhead != null)
+    		bulkhead.release();
+    	return false;
+    }
+    
+    /**
+     * Gives back the permit of a call which reports no outcome, because it was not made or the caller stopped waiting
+     * for it. Nothing is recorded, as the backend did not fail
+     */
+    private void releasePermit() {
+    	if(getBreakerState() == halfOpenState)
+    		((BreakerHalfOpenState)halfOpenState).releasePermit();
+    	if(bulkhead != null)
+    		bulkhead.release();
+    }
+    
+    private static boolean isSuccessful(Future<?> completedFuture) throws InterruptedException {
+    	try {
+    		completedFuture.get();
+    		return true;
+    	}
+    	catch(ExecutionException e) {
+    		return false;
+    	}
+    }
+    
+    /**
+     * @return the exception thrown by the call, as is
+     */
+    private static Exception getCause(ExecutionException e) {
+    	Throwable cause = e.getCause();
+    	if(cause instanceof Error)
+    		throw (Error)cause;
+    	if(cause instanceof Exception)
+    		return (Exception)cause;
+    	return e;
+    }
+    
+    /**
+     * The budget is checked last, so that only retries actually made are counted in it
+     * @param retryAttempt 1 for the first retry
+     * @param e exception of the last attempt
+     */
+    private boolean isRetryPermitted(int retryAttempt, Exception e) {
+    	if(retryAttempt > retry.getMaxRetryAttempts() || e == callNotPermittedException)
+    		return false;
+    	if(!circuitBreakerConfig.getExceptionClassifier().isFailure(e))
+    		return false;
+    	BreakerStateType breakerStateType = getBreakerState().getBreakerStateType();
+    	if(breakerStateType == BreakerStateType.DISABLED)
+    		//no window to compute a budget from, the minimum of one retry per period applies
+    		return retry.tryAcquireRetryBudget(0);
+    	if(breakerStateType != BreakerStateType.CLOSED)
+    		return false;
+    	return retry.tryAcquireRetryBudget(((BreakerClosedState)closedState).getSuccessCallCount());
+    }
+    
     CircuitBreakerConfig getCircuitBreakerConfig() {
     	return circuitBreakerConfig;
     }
     
     /**
-     * Used for unit test. Method is not synchronized
+     * Used by the states to re-read the state after a transition, and for unit test. Value may be stale as soon as it is returned
      * @return current state object of the breaker
      */
     BreakerStateInterface getBreakerState() {
-    	return breakerState;
+    	return states[(int)(stateToken.get() & STATE_TYPE_MASK)];
+    }
+    
+    /**
+     * A state reads the token before reading the counts or timestamps a transition decision is based on, and gives it back
+     * to the transition method. The transition then fails if the state was left meanwhile, even if it was entered again
+     * @return opaque value identifying the current state and the transition which led to it
+     */
+    long getStateToken() {
+    	return stateToken.get();
+    }
+    
+    /**
+     * Number of OPEN periods, the current one included, since the breaker was last CLOSED after HALF_OPEN probes succeeded,
+     * or since it was CLOSED by another transition. Closing because maxDurationOpenInHalfOpenState is over proves nothing,
+     * so the count is kept and the backoff goes on if the breaker opens again
+     */
+    int getConsecutiveOpenCount() {
+    	return consecutiveOpenCount;
+    }
+    
+    /**
+     * Used by a state which attempted a transition, whether this thread performed it or not, to let the new state decide.
+     * If another thread is still performing the transition, the call is not permitted rather than waiting for it
+     */
+    boolean isClosedForThisCallAfterTransition(BreakerStateInterface fromState) {
+    	BreakerStateInterface state = getBreakerState();
+    	if(state == fromState)
+    		return false;
+    	return state.isClosedForThisCall();
     }
     
-    void moveToClosedState(String details) {
-    	breakerState = new BreakerClosedState(this);
-    	registerEvent(details);
+    /**
+     * State transition methods. Transition only happens if the current state is still fromState,
+     * so that when several threads detect the same condition only one of them wins.
+     * State objects are reused, no allocation happens for the transition itself.
+     * Methods without fromStateToken use the current token, for unit tests and transitions not based on any count
+     * @param fromState state object the caller expects to leave
+     * @param fromStateToken value of getStateToken() read by fromState before taking its decision
+     * @param reason reason of the transition, part of the event
+     * @return true if this thread performed the transition
+     */
+    boolean moveToClosedState(BreakerStateInterface fromState, StateChangeReason reason) {
+    	return moveToState(fromState, stateToken.get(), closedState, reason, 0, 0, 0);
+    }
+
+    boolean moveToClosedState(BreakerStateInterface fromState, long fromStateToken, StateChangeReason reason) {
+    	return moveToState(fromState, fromStateToken, closedState, reason, 0, 0, 0);
+    }
+
+    /**
+     * Same as moveToClosedState(fromState, fromStateToken, reason), with the counts the decision was based on
+     */
+    boolean moveToClosedState(BreakerStateInterface fromState, long fromStateToken, StateChangeReason reason,
+    		long callCount, long failureCallCount, long slowCallDurationCount) {
+    	return moveToState(fromState, fromStateToken, closedState, reason, callCount, failureCallCount, slowCallDurationCount);
+    }
+
+    boolean moveToOpenState(BreakerStateInterface fromState, StateChangeReason reason) {
+    	return moveToState(fromState, stateToken.get(), openState, reason, 0, 0, 0);
+    }
+
+    boolean moveToOpenState(BreakerStateInterface fromState, long fromStateToken, StateChangeReason reason,
+    		long callCount, long failureCallCount, long slowCallDurationCount) {
+    	return moveToState(fromState, fromStateToken, openState, reason, callCount, failureCallCount, slowCallDurationCount);
     }
 
-    void moveToOpenState(String details) {
-    	breakerState = new BreakerOpenState(this);
-    	registerEvent(details);
+    boolean moveToHalfOpenState(BreakerStateInterface fromState, StateChangeReason reason) {
+    	return moveToState(fromState, stateToken.get(), halfOpenState, reason, 0, 0, 0);
     }
 
-    void moveToHalfOpenState(String details) {
-    	breakerState = new BreakerHalfOpenState(this);
-    	registerEvent(details);
+    boolean moveToHalfOpenState(BreakerStateInterface fromState, long fromStateToken, StateChangeReason reason) {
+    	return moveToState(fromState, fromStateToken, halfOpenState, reason, 0, 0, 0);
     }
 
-    void moveToDisabledState(String details) {
-    	breakerState = new BreakerDisabledState(this);
-    	registerEvent(details);
+    boolean moveToDisabledState(BreakerStateInterface fromState, StateChangeReason reason) {
+    	return moveToState(fromState, stateToken.get(), disabledState, reason, 0, 0, 0);
     }
 
-    void moveToForcedOpenState(String details) {
-    	breakerState = new BreakerForcedOpenState(this);
-    	registerEvent(details);
+    boolean moveToForcedOpenState(BreakerStateInterface fromState, StateChangeReason reason) {
+    	return moveToState(fromState, stateToken.get(), forcedOpenState, reason, 0, 0, 0);
+    }
+    
+    /**
+     * The transition is claimed with a single CAS setting TRANSITION_IN_PROGRESS on the expected token. The winner resets
+     * toState, which no other thread can reset meanwhile, then publishes the token of toState with the next generation.
+     * Threads attempting another transition during the claim fail immediately, no thread waits. Threads reading the
+     * state during the claim still see fromState.
+     * The event only holds the counts, its text is built by the listeners if they need it
+     */
+    private boolean moveToState(BreakerStateInterface fromState, long fromStateToken, BreakerStateInterface toState,
+    		StateChangeReason reason, long callCount, long failureCallCount, long slowCallDurationCount) {
+    	if((fromStateToken & TRANSITION_IN_PROGRESS) != 0 || states[(int)(fromStateToken & STATE_TYPE_MASK)] != fromState)
+    		return false;
+    	if(!stateToken.compareAndSet(fromStateToken, fromStateToken | TRANSITION_IN_PROGRESS))
+    		return false;
+    	if(toState == openState)
+    		consecutiveOpenCount++;
+    	else if(toState != halfOpenState && reason != StateChangeReason.MAX_DURATION_OPEN_IN_HALF_OPEN_STATE_OVER)
+    		consecutiveOpenCount = 0;
+    	toState.reset();
+    	long clockTimestamp = circuitBreakerConfig.getClock().currentTimeMillis();
+    	stateChangeTimestamp = clockTimestamp;
+    	stateToken.set(((fromStateToken & ~(STATE_TYPE_MASK | TRANSITION_IN_PROGRESS)) + GENERATION_INCREMENT)
+    			| toState.getBreakerStateType().ordinal());
+    	registerStateChangeEvent(clockTimestamp, fromState.getBreakerStateType(), toState.getBreakerStateType(),
+    			reason, callCount, failureCallCount, slowCallDurationCount);
+    	return true;
+    }
+    
+    /**
+     * Called by the constructor only, before the breaker is visible to other threads
+     */
+    private void moveToInitialState(BreakerStateInterface initialState) {
+    	initialState.reset();
+    	long clockTimestamp = circuitBreakerConfig.getClock().currentTimeMillis();
+    	stateChangeTimestamp = clockTimestamp;
+    	stateToken.set(initialState.getBreakerStateType().ordinal());
+    	registerStateChangeEvent(clockTimestamp, null, initialState.getBreakerStateType(),
+    			StateChangeReason.INITIAL_STATE, 0, 0, 0);
+    }
+    
+    private void registerStateChangeEvent(long clockTimestamp, BreakerStateType fromStateType, BreakerStateType toStateType,
+    		StateChangeReason reason, long callCount, long failureCallCount, long slowCallDurationCount) {
+    	if(breakerStateEventManager.hasListeners())
+    		breakerStateEventManager.registerEvent(
+    				new CircuitBreakerStateChangeEvent(circuitBreakerConfig.getName(),
+    						clockTimestamp, fromStateType, toStateType,
+    						reason, callCount, failureCallCount, slowCallDurationCount));
+    }
+    
+    /**
+     * Records a call ending with an exception as failed or succeeded, depending on the exceptionClassifier
+     * @param startTime System.nanoTime() value before the call
+     */
+    void callThrew(long startTime, Throwable t) {
+    	long callDuration = (System.nanoTime() - startTime) / 1000000L;
+    	if(circuitBreakerConfig.getExceptionClassifier().isFailure(t))
+    		callFailed(callDuration);
+    	else
+    		callSucceeded(callDuration);
     }
     
-    private void registerEvent(String details) {
-    	breakerStateEventManager.registerEvent(
-    			new CircuitBreakerStateChangeEvent(circuitBreakerConfig.getName(),
-    			breakerState.getBreakerStateType(),
-    			details));    	
+    private static <T> CompletableFuture<T> failedFuture(Throwable t) {
+    	CompletableFuture<T> future = new CompletableFuture<T>();
+    	future.completeExceptionally(t);
+    	return future;
     }
     
     boolean isSlowCall(long callDuration) {
@@ -97,11 +778,26 @@ public class CircuitBreaker {
      */
     boolean isExceedFailureOrSlowRateThreshold(CountStats countStats) {
 		countStats.calculateRates();
+		return isExceedFailureOrSlowRateThreshold(countStats.failureRate, countStats.slowCallRate);
+    }
+    
+    /**
+     * Same as isExceedFailureOrSlowRateThreshold(CountStats) without the need of a CountStats object
+     * @return true if any stat ratio exceeds any threshold
+     */
+    boolean isExceedFailureOrSlowRateThreshold(long callCount, long failureCallCount, long slowCallDurationCount) {
+    	if(callCount == 0)
+    		return false;
+    	return isExceedFailureOrSlowRateThreshold((float)failureCallCount * 100f / (float)callCount,
+    			(float)slowCallDurationCount * 100f / (float)callCount);
+    }
+    
+    private boolean isExceedFailureOrSlowRateThreshold(float failureRate, float slowCallRate) {
 		if(circuitBreakerConfig.getFailureRateThreshold() > 0 &&
-				countStats.failureRate >= circuitBreakerConfig.getFailureRateThreshold())
+				failureRate >= circuitBreakerConfig.getFailureRateThreshold())
 	    	return true;
 		if(circuitBreakerConfig.getSlowCallRateThreshold() > 0 && 
-				countStats.slowCallRate >= circuitBreakerConfig.getSlowCallRateThreshold())
+				slowCallRate >= circuitBreakerConfig.getSlowCallRateThreshold())
 			return true;
         return false;
     }
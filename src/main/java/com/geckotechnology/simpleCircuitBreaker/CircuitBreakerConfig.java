@@ -13,6 +13,29 @@ public class CircuitBreakerConfig {
 	private static final int MINIMUM_NUMBER_OF_CALLS_DEFAULT = 10;
 	private static final long WAIT_DURATION_IN_OPEN_STATE_DEFAULT = 60000;
 	private static final long MAX_DURATION_OPE_IN_HALF_OPEN_STATE_DEFAULT = 120000;
+	private static final long PERMIT_EXPIRY_DURATION_IN_HALF_OPEN_STATE_DEFAULT = 0;
+	private static final int SLIDING_WINDOW_STRIPE_COUNT_DEFAULT = 1;
+	private static final SlidingWindowType SLIDING_WINDOW_TYPE_DEFAULT = SlidingWindowType.TIME_BASED;
+	private static final long SLIDING_WINDOW_BUCKET_WIDTH_DEFAULT = 1000;
+	private static final BreakerClock CLOCK_DEFAULT = MonotonicBreakerClock.getInstance();
+	private static final boolean LATENCY_HISTOGRAM_ENABLED_DEFAULT = false;
+	private static final int MAX_CONCURRENT_CALLS_DEFAULT = 0;
+	private static final long MAX_WAIT_DURATION_IN_BULKHEAD_DEFAULT = 0;
+	private static final int MIN_CONCURRENT_CALLS_DEFAULT = 0;
+	private static final int LIMIT_FOR_PERIOD_DEFAULT = 0;
+	private static final long LIMIT_REFRESH_PERIOD_DEFAULT = 1000;
+	private static final int MAX_RETRY_ATTEMPTS_DEFAULT = 0;
+	private static final long RETRY_WAIT_DURATION_DEFAULT = 500;
+	private static final float RETRY_BACKOFF_MULTIPLIER_DEFAULT = 2;
+	private static final long MAX_RETRY_WAIT_DURATION_DEFAULT = 30000;
+	private static final float RETRY_BUDGET_PERCENTAGE_DEFAULT = 20;
+	private static final float HEDGING_PERCENTILE_DEFAULT = 95;
+	private static final float HEDGING_BUDGET_PERCENTAGE_DEFAULT = 0;
+	private static final long TIMEOUT_DURATION_DEFAULT = 0;
+	private static final float WAIT_DURATION_IN_OPEN_STATE_MULTIPLIER_DEFAULT = 1;
+	private static final long MAX_WAIT_DURATION_IN_OPEN_STATE_DEFAULT = 600000;
+	private static final float WAIT_DURATION_IN_OPEN_STATE_JITTER_DEFAULT = 0;
+	private static final BreakerExceptionClassifier EXCEPTION_CLASSIFIER_DEFAULT = DefaultBreakerExceptionClassifier.getInstance();
 	
     private String name = name_DEFAULT;
     private float failureRateThreshold = FAILURE_RATE_THRESHOLD_DEFAULT;
@@ -23,6 +46,29 @@ public class CircuitBreakerConfig {
 	private int minimumNumberOfCalls = MINIMUM_NUMBER_OF_CALLS_DEFAULT;
 	private long waitDurationInOpenState = 	WAIT_DURATION_IN_OPEN_STATE_DEFAULT;
 	private long maxDurationOpenInHalfOpenState = MAX_DURATION_OPE_IN_HALF_OPEN_STATE_DEFAULT;
+	private long permitExpiryDurationInHalfOpenState = PERMIT_EXPIRY_DURATION_IN_HALF_OPEN_STATE_DEFAULT;
+	private int slidingWindowStripeCount = SLIDING_WINDOW_STRIPE_COUNT_DEFAULT;
+	private SlidingWindowType slidingWindowType = SLIDING_WINDOW_TYPE_DEFAULT;
+	private long slidingWindowBucketWidth = SLIDING_WINDOW_BUCKET_WIDTH_DEFAULT;
+	private BreakerClock clock = CLOCK_DEFAULT;
+	private boolean latencyHistogramEnabled = LATENCY_HISTOGRAM_ENABLED_DEFAULT;
+	private int maxConcurrentCalls = MAX_CONCURRENT_CALLS_DEFAULT;
+	private long maxWaitDurationInBulkhead = MAX_WAIT_DURATION_IN_BULKHEAD_DEFAULT;
+	private int minConcurrentCalls = MIN_CONCURRENT_CALLS_DEFAULT;
+	private int limitForPeriod = LIMIT_FOR_PERIOD_DEFAULT;
+	private long limitRefreshPeriod = LIMIT_REFRESH_PERIOD_DEFAULT;
+	private int maxRetryAttempts = MAX_RETRY_ATTEMPTS_DEFAULT;
+	private long retryWaitDuration = RETRY_WAIT_DURATION_DEFAULT;
+	private float retryBackoffMultiplier = RETRY_BACKOFF_MULTIPLIER_DEFAULT;
+	private long maxRetryWaitDuration = MAX_RETRY_WAIT_DURATION_DEFAULT;
+	private float retryBudgetPercentage = RETRY_BUDGET_PERCENTAGE_DEFAULT;
+	private float hedgingPercentile = HEDGING_PERCENTILE_DEFAULT;
+	private float hedgingBudgetPercentage = HEDGING_BUDGET_PERCENTAGE_DEFAULT;
+	private long timeoutDuration = TIMEOUT_DURATION_DEFAULT;
+	private float waitDurationInOpenStateMultiplier = WAIT_DURATION_IN_OPEN_STATE_MULTIPLIER_DEFAULT;
+	private long maxWaitDurationInOpenState = MAX_WAIT_DURATION_IN_OPEN_STATE_DEFAULT;
+	private float waitDurationInOpenStateJitter = WAIT_DURATION_IN_OPEN_STATE_JITTER_DEFAULT;
+	private BreakerExceptionClassifier exceptionClassifier = EXCEPTION_CLASSIFIER_DEFAULT;
 
 	/**
 	 * Default constructor with default values
@@ -45,6 +91,14 @@ public class CircuitBreakerConfig {
 	 * @param props
 	 */
 	public CircuitBreakerConfig(String prefix, Properties props) {
+		overrideWithProperties(prefix, props);
+	}
+	
+	/**
+	 * Same as the constructor, but on top of the current values. Used by the registry to apply a breaker
+	 * configuration on top of its default configuration
+	 */
+	void overrideWithProperties(String prefix, Properties props) {
 		if(prefix == null)
 			prefix = "";
 		String value = null;
@@ -75,6 +129,78 @@ public class CircuitBreakerConfig {
 		value = props.getProperty(prefix + "maxDurationOpenInHalfOpenState");
 		if(value != null)
 			setMaxDurationOpenInHalfOpenState(Long.parseLong(value));
+		value = props.getProperty(prefix + "permitExpiryDurationInHalfOpenState");
+		if(value != null)
+			setPermitExpiryDurationInHalfOpenState(Long.parseLong(value));
+		value = props.getProperty(prefix + "slidingWindowStripeCount");
+		if(value != null)
+			setSlidingWindowStripeCount(Integer.parseInt(value));
+		value = props.getProperty(prefix + "slidingWindowType");
+		if(value != null)
+			setSlidingWindowType(SlidingWindowType.valueOf(value));
+		value = props.getProperty(prefix + "slidingWindowBucketWidth");
+		if(value != null)
+			setSlidingWindowBucketWidth(Long.parseLong(value));
+		value = props.getProperty(prefix + "clock");
+		if(value != null) {
+			if(value.equals("MONOTONIC"))
+				setClock(MonotonicBreakerClock.getInstance());
+			else if(value.equals("COARSE"))
+				setClock(CoarseBreakerClock.getInstance());
+			else
+				throw new IllegalArgumentException("clock must be MONOTONIC or COARSE");
+		}
+		value = props.getProperty(prefix + "latencyHistogramEnabled");
+		if(value != null)
+			setLatencyHistogramEnabled(Boolean.parseBoolean(value));
+		value = props.getProperty(prefix + "maxConcurrentCalls");
+		if(value != null)
+			setMaxConcurrentCalls(Integer.parseInt(value));
+		value = props.getProperty(prefix + "maxWaitDurationInBulkhead");
+		if(value != null)
+			setMaxWaitDurationInBulkhead(Long.parseLong(value));
+		value = props.getProperty(prefix + "minConcurrentCalls");
+		if(value != null)
+			setMinConcurrentCalls(Integer.parseInt(value));
+		value = props.getProperty(prefix + "limitForPeriod");
+		if(value != null)
+			setLimitForPeriod(Integer.parseInt(value));
+		value = props.getProperty(prefix + "limitRefreshPeriod");
+		if(value != null)
+			setLimitRefreshPeriod(Long.parseLong(value));
+		value = props.getProperty(prefix + "maxRetryAttempts");
+		if(value != null)
+			setMaxRetryAttempts(Integer.parseInt(value));
+		value = props.getProperty(prefix + "retryWaitDuration");
+		if(value != null)
+			setRetryWaitDuration(Long.parseLong(value));
+		value = props.getProperty(prefix + "retryBackoffMultiplier");
+		if(value != null)
+			setRetryBackoffMultiplier(Float.parseFloat(value));
+		value = props.getProperty(prefix + "maxRetryWaitDuration");
+		if(value != null)
+			setMaxRetryWaitDuration(Long.parseLong(value));
+		value = props.getProperty(prefix + "retryBudgetPercentage");
+		if(value != null)
+			setRetryBudgetPercentage(Float.parseFloat(value));
+		value = props.getProperty(prefix + "hedgingPercentile");
+		if(value != null)
+			setHedgingPercentile(Float.parseFloat(value));
+		value = props.getProperty(prefix + "hedgingBudgetPercentage");
+		if(value != null)
+			setHedgingBudgetPercentage(Float.parseFloat(value));
+		value = props.getProperty(prefix + "timeoutDuration");
+		if(value != null)
+			setTimeoutDuration(Long.parseLong(value));
+		value = props.getProperty(prefix + "waitDurationInOpenStateMultiplier");
+		if(value != null)
+			setWaitDurationInOpenStateMultiplier(Float.parseFloat(value));
+		value = props.getProperty(prefix + "maxWaitDurationInOpenState");
+		if(value != null)
+			setMaxWaitDurationInOpenState(Long.parseLong(value));
+		value = props.getProperty(prefix + "waitDurationInOpenStateJitter");
+		if(value != null)
+			setWaitDurationInOpenStateJitter(Float.parseFloat(value));
 	}
 		
 	public CircuitBreakerConfig clone() {
@@ -88,6 +214,29 @@ public class CircuitBreakerConfig {
 		clone.slowCallRateThreshold = slowCallRateThreshold;
 		clone.waitDurationInOpenState = waitDurationInOpenState;
 		clone.maxDurationOpenInHalfOpenState = maxDurationOpenInHalfOpenState;
+		clone.permitExpiryDurationInHalfOpenState = permitExpiryDurationInHalfOpenState;
+		clone.slidingWindowStripeCount = slidingWindowStripeCount;
+		clone.slidingWindowType = slidingWindowType;
+		clone.slidingWindowBucketWidth = slidingWindowBucketWidth;
+		clone.clock = clock;
+		clone.latencyHistogramEnabled = latencyHistogramEnabled;
+		clone.maxConcurrentCalls = maxConcurrentCalls;
+		clone.maxWaitDurationInBulkhead = maxWaitDurationInBulkhead;
+		clone.minConcurrentCalls = minConcurrentCalls;
+		clone.limitForPeriod = limitForPeriod;
+		clone.limitRefreshPeriod = limitRefreshPeriod;
+		clone.maxRetryAttempts = maxRetryAttempts;
+		clone.retryWaitDuration = retryWaitDuration;
+		clone.retryBackoffMultiplier = retryBackoffMultiplier;
+		clone.maxRetryWaitDuration = maxRetryWaitDuration;
+		clone.retryBudgetPercentage = retryBudgetPercentage;
+		clone.hedgingPercentile = hedgingPercentile;
+		clone.hedgingBudgetPercentage = hedgingBudgetPercentage;
+		clone.timeoutDuration = timeoutDuration;
+		clone.waitDurationInOpenStateMultiplier = waitDurationInOpenStateMultiplier;
+		clone.maxWaitDurationInOpenState = maxWaitDurationInOpenState;
+		clone.waitDurationInOpenStateJitter = waitDurationInOpenStateJitter;
+		clone.exceptionClassifier = exceptionClassifier;
 		return clone;
 	}
 	
@@ -102,6 +251,29 @@ public class CircuitBreakerConfig {
 		sb.append(", ").append("minimumNumberOfCalls:").append(minimumNumberOfCalls);
 		sb.append(", ").append("waitDurationInOpenState:").append(waitDurationInOpenState);
 		sb.append(", ").append("maxDurationOpenInHalfOpenState:").append(maxDurationOpenInHalfOpenState);
+		sb.append(", ").append("permitExpiryDurationInHalfOpenState:").append(permitExpiryDurationInHalfOpenState);
+		sb.append(", ").append("slidingWindowStripeCount:").append(slidingWindowStripeCount);
+		sb.append(", ").append("slidingWindowType:").append(slidingWindowType);
+		sb.append(", ").append("slidingWindowBucketWidth:").append(slidingWindowBucketWidth);
+		sb.append(", ").append("clock:").append(clock);
+		sb.append(", ").append("latencyHistogramEnabled:").append(latencyHistogramEnabled);
+		sb.append(", ").append("maxConcurrentCalls:").append(maxConcurrentCalls);
+		sb.append(", ").append("maxWaitDurationInBulkhead:").append(maxWaitDurationInBulkhead);
+		sb.append(", ").append("minConcurrentCalls:").append(minConcurrentCalls);
+		sb.append(", ").append("limitForPeriod:").append(limitForPeriod);
+		sb.append(", ").append("limitRefreshPeriod:").append(limitRefreshPeriod);
+		sb.append(", ").append("maxRetryAttempts:").append(maxRetryAttempts);
+		sb.append(", ").append("retryWaitDuration:").append(retryWaitDuration);
+		sb.append(", ").append("retryBackoffMultiplier:").append(retryBackoffMultiplier);
+		sb.append(", ").append("maxRetryWaitDuration:").append(maxRetryWaitDuration);
+		sb.append(", ").append("retryBudgetPercentage:").append(retryBudgetPercentage);
+		sb.append(", ").append("hedgingPercentile:").append(hedgingPercentile);
+		sb.append(", ").append("hedgingBudgetPercentage:").append(hedgingBudgetPercentage);
+		sb.append(", ").append("timeoutDuration:").append(timeoutDuration);
+		sb.append(", ").append("waitDurationInOpenStateMultiplier:").append(waitDurationInOpenStateMultiplier);
+		sb.append(", ").append("maxWaitDurationInOpenState:").append(maxWaitDurationInOpenState);
+		sb.append(", ").append("waitDurationInOpenStateJitter:").append(waitDurationInOpenStateJitter);
+		sb.append(", ").append("exceptionClassifier:").append(exceptionClassifier);
 		return sb.toString();
 	}
 	
@@ -185,6 +357,340 @@ public class CircuitBreakerConfig {
 		this.maxDurationOpenInHalfOpenState = maxDurationOpenInHalfOpenState;
 	}
 
+	public long getPermitExpiryDurationInHalfOpenState() {
+		return permitExpiryDurationInHalfOpenState;
+	}
+
+	/**
+	 * In HALF_OPEN state, a permitted call not reporting its outcome within this duration (ms) loses its permit,
+	 * which is given to the next caller. A leaked permit then delays the decision by this duration only, instead of
+	 * maxDurationOpenInHalfOpenState. Should be above slowCallDurationThreshold. Default is 0, permits never expire
+	 */
+	public void setPermitExpiryDurationInHalfOpenState(long permitExpiryDurationInHalfOpenState) {
+		if(permitExpiryDurationInHalfOpenState < 0)
+			throw new IllegalArgumentException("permitExpiryDurationInHalfOpenState must be positive or null");
+		this.permitExpiryDurationInHalfOpenState = permitExpiryDurationInHalfOpenState;
+	}
+
+	public int getSlidingWindowStripeCount() {
+		return slidingWindowStripeCount;
+	}
+
+	/**
+	 * Number of independent sliding windows used in CLOSED state. Each thread records call outcomes in
+	 * its own stripe, the threshold check sums all stripes. Default is 1, use the number of cores for a
+	 * breaker shared by many threads.
+	 * With COUNT_BASED, each stripe keeps the last slidingWindowSize / slidingWindowStripeCount calls of its own threads,
+	 * so the window is no longer exactly the last slidingWindowSize calls: the calls of a stripe whose threads stopped
+	 * calling stay in the window until these threads call again. Keep 1 stripe if this matters.
+	 */
+	public void setSlidingWindowStripeCount(int slidingWindowStripeCount) {
+		if(slidingWindowStripeCount <= 0)
+			throw new IllegalArgumentException("slidingWindowStripeCount must be positive");
+		this.slidingWindowStripeCount = slidingWindowStripeCount;
+	}
+
+	public SlidingWindowType getSlidingWindowType() {
+		return slidingWindowType;
+	}
+
+	/**
+	 * TIME_BASED: slidingWindowSize is a number of buckets of slidingWindowBucketWidth ms (seconds by default).
+	 * COUNT_BASED: slidingWindowSize is a number of calls
+	 */
+	public void setSlidingWindowType(SlidingWindowType slidingWindowType) {
+		if(slidingWindowType == null)
+			throw new IllegalArgumentException("slidingWindowType can not be null");
+		this.slidingWindowType = slidingWindowType;
+	}
+
+	public long getSlidingWindowBucketWidth() {
+		return slidingWindowBucketWidth;
+	}
+
+	/**
+	 * Period of the budget counters: the sliding window duration for a TIME_BASED window, slidingWindowBucketWidth
+	 * for a COUNT_BASED window which has no duration
+	 * @return period in ms
+	 */
+	long getBudgetPeriod() {
+		if(slidingWindowType == SlidingWindowType.COUNT_BASED)
+			return slidingWindowBucketWidth;
+		return Math.max(1, slidingWindowSize) * slidingWindowBucketWidth;
+	}
+
+	/**
+	 * Width in ms of each bucket of a TIME_BASED sliding window. The window duration is
+	 * slidingWindowSize * slidingWindowBucketWidth. Default is 1000 ms, lower values such as 100 ms
+	 * let the breaker react within a few hundred ms of a failure burst
+	 */
+	public void setSlidingWindowBucketWidth(long slidingWindowBucketWidth) {
+		if(slidingWindowBucketWidth <= 0)
+			throw new IllegalArgumentException("slidingWindowBucketWidth must be positive");
+		this.slidingWindowBucketWidth = slidingWindowBucketWidth;
+	}
+
+	public BreakerClock getClock() {
+		return clock;
+	}
+
+	/**
+	 * Time source of the breaker. Default is MonotonicBreakerClock. CoarseBreakerClock replaces
+	 * the System.nanoTime() call of each call outcome by a volatile read, for breakers with very high throughput
+	 */
+	public void setClock(BreakerClock clock) {
+		if(clock == null)
+			throw new IllegalArgumentException("clock can not be null");
+		this.clock = clock;
+	}
+
+	public boolean isLatencyHistogramEnabled() {
+		return latencyHistogramEnabled;
+	}
+
+	/**
+	 * Keep a latency histogram in each bucket of a TIME_BASED sliding window, to query call duration percentiles
+	 * with CircuitBreaker.getCallDurationPercentile(). Ignored for COUNT_BASED windows. Each bucket then uses 704 more bytes
+	 */
+	public void setLatencyHistogramEnabled(boolean latencyHistogramEnabled) {
+		this.latencyHistogramEnabled = latencyHistogramEnabled;
+	}
+
+	public int getMaxConcurrentCalls() {
+		return maxConcurrentCalls;
+	}
+
+	/**
+	 * Maximum number of calls in progress, whatever the state of the breaker. Further calls are not permitted,
+	 * so that a slowing dependency sheds load before any threshold is exceeded. Default is 0, no limit
+	 */
+	public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+		if(maxConcurrentCalls < 0)
+			throw new IllegalArgumentException("maxConcurrentCalls must be positive or null");
+		this.maxConcurrentCalls = maxConcurrentCalls;
+	}
+
+	public long getMaxWaitDurationInBulkhead() {
+		return maxWaitDurationInBulkhead;
+	}
+
+	/**
+	 * Maximum time in ms isClosedForThisCall() waits for a call in progress to end when maxConcurrentCalls is reached.
+	 * Default is 0, the call is rejected immediately
+	 */
+	public void setMaxWaitDurationInBulkhead(long maxWaitDurationInBulkhead) {
+		if(maxWaitDurationInBulkhead < 0)
+			throw new IllegalArgumentException("maxWaitDurationInBulkhead must be positive or null");
+		this.maxWaitDurationInBulkhead = maxWaitDurationInBulkhead;
+	}
+
+	public int getMinConcurrentCalls() {
+		return minConcurrentCalls;
+	}
+
+	/**
+	 * Lowest value of an adaptive concurrency limit. When set below maxConcurrentCalls, the limit starts at maxConcurrentCalls
+	 * and adapts between both values: it increases by 1 for each call neither failed nor slow, and decreases by 10% for each
+	 * failed or slow call. Default is 0, the limit is fixed to maxConcurrentCalls
+	 */
+	public void setMinConcurrentCalls(int minConcurrentCalls) {
+		if(minConcurrentCalls < 0)
+			throw new IllegalArgumentException("minConcurrentCalls must be positive or null");
+		this.minConcurrentCalls = minConcurrentCalls;
+	}
+
+	public int getLimitForPeriod() {
+		return limitForPeriod;
+	}
+
+	/**
+	 * Maximum number of calls permitted per limitRefreshPeriod, checked by isClosedForThisCall() before
+	 * the bulkhead and the breaker state. Default is 0, no rate limit
+	 */
+	public void setLimitForPeriod(int limitForPeriod) {
+		if(limitForPeriod < 0)
+			throw new IllegalArgumentException("limitForPeriod must be positive or null");
+		this.limitForPeriod = limitForPeriod;
+	}
+
+	public long getLimitRefreshPeriod() {
+		return limitRefreshPeriod;
+	}
+
+	/**
+	 * Width in ms of the rate limiter windows. Default is 1000 ms
+	 */
+	public void setLimitRefreshPeriod(long limitRefreshPeriod) {
+		if(limitRefreshPeriod <= 0)
+			throw new IllegalArgumentException("limitRefreshPeriod must be positive");
+		this.limitRefreshPeriod = limitRefreshPeriod;
+	}
+
+	public int getMaxRetryAttempts() {
+		return maxRetryAttempts;
+	}
+
+	/**
+	 * Maximum number of retries of a failed call made with CircuitBreaker.executeWithRetry(). Default is 0, no retry
+	 */
+	public void setMaxRetryAttempts(int maxRetryAttempts) {
+		if(maxRetryAttempts < 0)
+			throw new IllegalArgumentException("maxRetryAttempts must be positive or null");
+		this.maxRetryAttempts = maxRetryAttempts;
+	}
+
+	public long getRetryWaitDuration() {
+		return retryWaitDuration;
+	}
+
+	/**
+	 * Wait in ms before the first retry, before jitter. Default is 500 ms
+	 */
+	public void setRetryWaitDuration(long retryWaitDuration) {
+		if(retryWaitDuration < 0)
+			throw new IllegalArgumentException("retryWaitDuration must be positive or null");
+		this.retryWaitDuration = retryWaitDuration;
+	}
+
+	public float getRetryBackoffMultiplier() {
+		return retryBackoffMultiplier;
+	}
+
+	/**
+	 * Factor applied to the wait before each further retry. Default is 2
+	 */
+	public void setRetryBackoffMultiplier(float retryBackoffMultiplier) {
+		if(retryBackoffMultiplier < 1)
+			throw new IllegalArgumentException("retryBackoffMultiplier must be 1 or more");
+		this.retryBackoffMultiplier = retryBackoffMultiplier;
+	}
+
+	public long getMaxRetryWaitDuration() {
+		return maxRetryWaitDuration;
+	}
+
+	/**
+	 * Upper bound in ms of the wait before a retry, before jitter. Default is 30000 ms
+	 */
+	public void setMaxRetryWaitDuration(long maxRetryWaitDuration) {
+		if(maxRetryWaitDuration < 0)
+			throw new IllegalArgumentException("maxRetryWaitDuration must be positive or null");
+		this.maxRetryWaitDuration = maxRetryWaitDuration;
+	}
+
+	public float getRetryBudgetPercentage() {
+		return retryBudgetPercentage;
+	}
+
+	/**
+	 * Maximum number of retries, as a percentage of the successful calls of the sliding window, counted over
+	 * periods of the sliding window duration, with at least one retry per period. Default is 20, 0 for no budget.
+	 * A DISABLED breaker has no window, so it gets only this minimum of one retry per slidingWindowBucketWidth period
+	 */
+	public void setRetryBudgetPercentage(float retryBudgetPercentage) {
+		if(retryBudgetPercentage < 0)
+			throw new IllegalArgumentException("retryBudgetPercentage must be positive or null");
+		this.retryBudgetPercentage = retryBudgetPercentage;
+	}
+
+	public float getHedgingPercentile() {
+		return hedgingPercentile;
+	}
+
+	/**
+	 * Call duration percentile of the sliding window after which CircuitBreaker.executeHedged() sends a hedged call.
+	 * Default is 95
+	 */
+	public void setHedgingPercentile(float hedgingPercentile) {
+		if(hedgingPercentile < 0 || hedgingPercentile > 100)
+			throw new IllegalArgumentException("hedgingPercentile must be between 0 and 100");
+		this.hedgingPercentile = hedgingPercentile;
+	}
+
+	public float getHedgingBudgetPercentage() {
+		return hedgingBudgetPercentage;
+	}
+
+	/**
+	 * Maximum number of hedged calls, as a percentage of the calls of the sliding window, counted over
+	 * periods of the sliding window duration. Default is 0, no hedging
+	 */
+	public void setHedgingBudgetPercentage(float hedgingBudgetPercentage) {
+		if(hedgingBudgetPercentage < 0)
+			throw new IllegalArgumentException("hedgingBudgetPercentage must be positive or null");
+		this.hedgingBudgetPercentage = hedgingBudgetPercentage;
+	}
+
+	public long getTimeoutDuration() {
+		return timeoutDuration;
+	}
+
+	/**
+	 * Time in ms after which a call made with CircuitBreaker.executeWithTimeout() is cancelled and recorded as failed.
+	 * Default is 0, slowCallDurationThreshold is used
+	 */
+	public void setTimeoutDuration(long timeoutDuration) {
+		if(timeoutDuration < 0)
+			throw new IllegalArgumentException("timeoutDuration must be positive or null");
+		this.timeoutDuration = timeoutDuration;
+	}
+
+	public float getWaitDurationInOpenStateMultiplier() {
+		return waitDurationInOpenStateMultiplier;
+	}
+
+	/**
+	 * Factor applied to waitDurationInOpenState each time the breaker goes back from HALF_OPEN to OPEN state,
+	 * until it moves to CLOSED state. Default is 1, the wait is always waitDurationInOpenState
+	 */
+	public void setWaitDurationInOpenStateMultiplier(float waitDurationInOpenStateMultiplier) {
+		if(waitDurationInOpenStateMultiplier < 1)
+			throw new IllegalArgumentException("waitDurationInOpenStateMultiplier must be 1 or more");
+		this.waitDurationInOpenStateMultiplier = waitDurationInOpenStateMultiplier;
+	}
+
+	public long getMaxWaitDurationInOpenState() {
+		return maxWaitDurationInOpenState;
+	}
+
+	/**
+	 * Upper bound in ms of the wait in OPEN state grown by waitDurationInOpenStateMultiplier, before jitter.
+	 * The wait is never below waitDurationInOpenState. Default is 600000 ms
+	 */
+	public void setMaxWaitDurationInOpenState(long maxWaitDurationInOpenState) {
+		if(maxWaitDurationInOpenState <= 0)
+			throw new IllegalArgumentException("maxWaitDurationInOpenState must be positive");
+		this.maxWaitDurationInOpenState = maxWaitDurationInOpenState;
+	}
+
+	public float getWaitDurationInOpenStateJitter() {
+		return waitDurationInOpenStateJitter;
+	}
+
+	/**
+	 * Maximum percentage by which the wait in OPEN state is randomly shortened, so that breakers of several
+	 * instances opened at the same time do not probe the backend at the same time. Default is 0, no jitter
+	 */
+	public void setWaitDurationInOpenStateJitter(float waitDurationInOpenStateJitter) {
+		if(waitDurationInOpenStateJitter < 0 || waitDurationInOpenStateJitter > 100)
+			throw new IllegalArgumentException("waitDurationInOpenStateJitter must be between 0 and 100 (included)");
+		this.waitDurationInOpenStateJitter = waitDurationInOpenStateJitter;
+	}
+
+	public BreakerExceptionClassifier getExceptionClassifier() {
+		return exceptionClassifier;
+	}
+
+	/**
+	 * Classifier of the exceptions thrown by the calls made with CircuitBreaker.execute() and run().
+	 * Default is DefaultBreakerExceptionClassifier, any exception is a failure. Not available as a property
+	 */
+	public void setExceptionClassifier(BreakerExceptionClassifier exceptionClassifier) {
+		if(exceptionClassifier == null)
+			throw new IllegalArgumentException("exceptionClassifier can not be null");
+		this.exceptionClassifier = exceptionClassifier;
+	}
+
 	public String getName() {
 		return name;
 	}
@@ -0,0 +1,146 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+/**
+ * Immutable snapshot of a breaker, returned by CircuitBreaker.getMetrics(). Counts are read without any lock,
+ * so they may be slightly stale and not exactly consistent with each other under load
+ */
+public class CircuitBreakerMetrics {
+	
+	private final String circuitBreakerName;
+	private final BreakerStateType breakerStateType;
+	private final long callCount;
+	private final long failureCallCount;
+	private final long slowCallDurationCount;
+	private final float failureRate;
+	private final float slowCallRate;
+	private final long notPermittedCallCount;
+	private final long bulkheadRejectedCallCount;
+	private final int concurrentCallCount;
+	private final int concurrencyLimit;
+	private final long rateLimiterRejectedCallCount;
+	private final long timeInState;
+	
+	CircuitBreakerMetrics(String circuitBreakerName, BreakerStateType breakerStateType,
+			long callCount, long failureCallCount, long slowCallDurationCount,
+			long notPermittedCallCount, long bulkheadRejectedCallCount, int concurrentCallCount, int concurrencyLimit,
+			long rateLimiterRejectedCallCount, long timeInState) {
+		this.circuitBreakerName = circuitBreakerName;
+		this.breakerStateType = breakerStateType;
+		this.callCount = callCount;
+		this.failureCallCount = failureCallCount;
+		this.slowCallDurationCount = slowCallDurationCount;
+		if(callCount == 0) {
+			failureRate = -1;
+			slowCallRate = -1;
+		}
+		else {
+			failureRate = (float)failureCallCount * 100f / (float)callCount;
+			slowCallRate = (float)slowCallDurationCount * 100f / (float)callCount;
+		}
+		this.notPermittedCallCount = notPermittedCallCount;
+		this.bulkheadRejectedCallCount = bulkheadRejectedCallCount;
+		this.concurrentCallCount = concurrentCallCount;
+		this.concurrencyLimit = concurrencyLimit;
+		this.rateLimiterRejectedCallCount = rateLimiterRejectedCallCount;
+		this.timeInState = timeInState;
+	}
+	
+	public String getCircuitBreakerName() {
+		return circuitBreakerName;
+	}
+	
+	public BreakerStateType getBreakerStateType() {
+		return breakerStateType;
+	}
+	
+	/**
+	 * Counts are the ones of the sliding window in CLOSED state, of the permitted calls in HALF_OPEN state, 0 otherwise
+	 */
+	public long getCallCount() {
+		return callCount;
+	}
+	
+	public long getFailureCallCount() {
+		return failureCallCount;
+	}
+	
+	public long getSlowCallDurationCount() {
+		return slowCallDurationCount;
+	}
+	
+	/**
+	 * @return failure rate in %, -1 if there is no call
+	 */
+	public float getFailureRate() {
+		return failureRate;
+	}
+	
+	/**
+	 * @return slow call rate in %, -1 if there is no call
+	 */
+	public float getSlowCallRate() {
+		return slowCallRate;
+	}
+	
+	/**
+	 * @return number of calls for which isClosedForThisCall() returned false, since the breaker creation
+	 */
+	public long getNotPermittedCallCount() {
+		return notPermittedCallCount;
+	}
+	
+	/**
+	 * @return number of calls rejected because maxConcurrentCalls was reached, since the breaker creation.
+	 * They are part of notPermittedCallCount
+	 */
+	public long getBulkheadRejectedCallCount() {
+		return bulkheadRejectedCallCount;
+	}
+	
+	/**
+	 * @return number of calls in progress, 0 if maxConcurrentCalls is not set
+	 */
+	public int getConcurrentCallCount() {
+		return concurrentCallCount;
+	}
+	
+	/**
+	 * @return current limit of calls in progress, maxConcurrentCalls unless minConcurrentCalls is set. 0 if maxConcurrentCalls is not set
+	 */
+	public int getConcurrencyLimit() {
+		return concurrencyLimit;
+	}
+	
+	/**
+	 * @return number of calls rejected because limitForPeriod was reached, since the breaker creation.
+	 * They are part of notPermittedCallCount
+	 */
+	public long getRateLimiterRejectedCallCount() {
+		return rateLimiterRejectedCallCount;
+	}
+	
+	/**
+	 * @return time spent in the current state, in ms
+	 */
+	public long getTimeInState() {
+		return timeInState;
+	}
+	
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("circuitBreakerName:").append(circuitBreakerName);
+		sb.append(", ").append("breakerStateType:").append(breakerStateType);
+		sb.append(", ").append("callCount:").append(callCount);
+		sb.append(", ").append("failureCallCount:").append(failureCallCount);
+		sb.append(", ").append("slowCallDurationCount:").append(slowCallDurationCount);
+		sb.append(", ").append("failureRate:").append(failureRate);
+		sb.append(", ").append("slowCallRate:").append(slowCallRate);
+		sb.append(", ").append("notPermittedCallCount:").append(notPermittedCallCount);
+		sb.append(", ").append("bulkheadRejectedCallCount:").append(bulkheadRejectedCallCount);
+		sb.append(", ").append("concurrentCallCount:").append(concurrentCallCount);
+		sb.append(", ").append("concurrencyLimit:").append(concurrencyLimit);
+		sb.append(", ").append("rateLimiterRejectedCallCount:").append(rateLimiterRejectedCallCount);
+		sb.append(", ").append("timeInState:").append(timeInState);
+		return sb.toString();
+	}
+}
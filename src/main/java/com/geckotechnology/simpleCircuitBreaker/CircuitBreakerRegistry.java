@@ -0,0 +1,189 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds breakers by name, for applications using one breaker per downstream host or endpoint.
+ * Lookups of existing breakers are lock-free. When two threads create the same breaker at the same time,
+ * it is created once and both get the same instance.
+ */
+public class CircuitBreakerRegistry implements Iterable<CircuitBreaker> {
+
+	private static final String NAME_PROPERTY = "name";
+	//estimated size of a map entry: node of 32 bytes (header, hash, key, value, next) plus its table slot of 4 bytes
+	//at a load factor of 0.75, with compressed oops
+	private static final long ESTIMATED_ENTRY_MEMORY_FOOTPRINT = 40;
+
+	private final CircuitBreakerConfig defaultConfig;
+	private final ConcurrentHashMap<String, CircuitBreakerConfig> configs = new ConcurrentHashMap<String, CircuitBreakerConfig>();
+	private final ConcurrentHashMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<String, CircuitBreaker>();
+
+	/**
+	 * Registry where breakers are created with the default values of CircuitBreakerConfig
+	 */
+	public CircuitBreakerRegistry() {
+		this(new CircuitBreakerConfig());
+	}
+
+	/**
+	 * @param defaultConfig configuration used when none is given. It is copied, later changes are ignored
+	 */
+	public CircuitBreakerRegistry(CircuitBreakerConfig defaultConfig) {
+		if(defaultConfig == null)
+			throw new IllegalArgumentException("defaultConfig can not be null");
+		this.defaultConfig = defaultConfig.clone();
+	}
+
+	public CircuitBreakerConfig getCloneOfDefaultConfig() {
+		return defaultConfig.clone();
+	}
+
+	/**
+	 * Register a configuration shared by several breakers, see getOrCreate(String, String)
+	 * @param configName name of the configuration, not related to the breaker names
+	 * @param config it is copied, later changes are ignored
+	 */
+	public void addConfig(String configName, CircuitBreakerConfig config) {
+		if(configName == null)
+			throw new IllegalArgumentException("configName can not be null");
+		if(config == null)
+			throw new IllegalArgumentException("config can not be null");
+		configs.put(configName, config.clone());
+	}
+
+	/**
+	 * @return the breaker, or null if no breaker has this name
+	 */
+	public CircuitBreaker get(String name) {
+		if(name == null)
+			throw new IllegalArgumentException("name can not be null");
+		return circuitBreakers.get(name);
+	}
+
+	/**
+	 * Return the breaker, or create it with the default configuration
+	 */
+	public CircuitBreaker getOrCreate(String name) {
+		return getOrCreate(name, defaultConfig);
+	}
+
+	/**
+	 * Return the breaker, or create it with the configuration registered with addConfig()
+	 * @throws IllegalArgumentException if no configuration has this name
+	 */
+	public CircuitBreaker getOrCreate(String name, String configName) {
+		CircuitBreaker circuitBreaker = get(name);
+		if(circuitBreaker != null)
+			return circuitBreaker;
+		if(configName == null)
+			throw new IllegalArgumentException("configName can not be null");
+		CircuitBreakerConfig config = configs.get(configName);
+		if(config == null)
+			throw new IllegalArgumentException("no config registered with name " + configName);
+		return getOrCreate(name, config);
+	}
+
+	/**
+	 * Return the breaker, or create it with config. If the breaker already exists, config is ignored.
+	 * The breaker name is name, whatever the name of config. The breaker is created once, even when several threads
+	 * ask for it at the same time
+	 */
+	public CircuitBreaker getOrCreate(String name, CircuitBreakerConfig config) {
+		//get() first: computeIfAbsent() of Java 8 locks the map bin even when the breaker exists
+		CircuitBreaker circuitBreaker = get(name);
+		if(circuitBreaker != null)
+			return circuitBreaker;
+		if(config == null)
+			throw new IllegalArgumentException("config can not be null");
+		return circuitBreakers.computeIfAbsent(name, key -> {
+			CircuitBreakerConfig breakerConfig = config.clone();
+			breakerConfig.setName(key);
+			return new CircuitBreaker(breakerConfig);
+		});
+	}
+
+	/**
+	 * Create one breaker for each prefix, using the same properties as CircuitBreakerConfig(String, Properties).
+	 * Properties not set for a prefix keep the value of the default configuration. The breaker name is the
+	 * property prefix + "name" if set, otherwise the prefix without its trailing dot
+	 * @return the breakers, in the order of prefixes. Breakers which already exist are returned unchanged
+	 */
+	public List<CircuitBreaker> getOrCreateFromProperties(Properties props, String... prefixes) {
+		if(props == null)
+			throw new IllegalArgumentException("props can not be null");
+		List<CircuitBreaker> createdCircuitBreakers = new ArrayList<CircuitBreaker>(prefixes.length);
+		for(String prefix:prefixes) {
+			if(prefix == null || prefix.length() == 0)
+				throw new IllegalArgumentException("prefix can not be null or empty");
+			String name = props.getProperty(prefix + NAME_PROPERTY);
+			if(name == null)
+				name = prefix.endsWith(".") ? prefix.substring(0, prefix.length() - 1) : prefix;
+			CircuitBreaker circuitBreaker = get(name);
+			if(circuitBreaker == null) {
+				CircuitBreakerConfig config = defaultConfig.clone();
+				config.overrideWithProperties(prefix, props);
+				circuitBreaker = getOrCreate(name, config);
+			}
+			createdCircuitBreakers.add(circuitBreaker);
+		}
+		return createdCircuitBreakers;
+	}
+
+	/**
+	 * Same as getOrCreateFromProperties(Properties, String...), where the prefixes are found from the
+	 * properties ending with ".name". So "host1.ep1.name=ABC" creates breaker ABC using the properties
+	 * starting with "host1.ep1."
+	 * @return the breakers, in no particular order
+	 */
+	public List<CircuitBreaker> getOrCreateFromProperties(Properties props) {
+		if(props == null)
+			throw new IllegalArgumentException("props can not be null");
+		List<String> prefixes = new ArrayList<String>();
+		for(String key:props.stringPropertyNames()) {
+			if(key.endsWith("." + NAME_PROPERTY))
+				prefixes.add(key.substring(0, key.length() - NAME_PROPERTY.length()));
+		}
+		return getOrCreateFromProperties(props, prefixes.toArray(new String[prefixes.size()]));
+	}
+
+	/**
+	 * Remove the breaker from the registry. Callers still holding it can keep using it
+	 * @return the removed breaker, or null if no breaker has this name
+	 */
+	public CircuitBreaker remove(String name) {
+		if(name == null)
+			throw new IllegalArgumentException("name can not be null");
+		return circuitBreakers.remove(name);
+	}
+
+	public int size() {
+		return circuitBreakers.size();
+	}
+
+	/**
+	 * Weakly consistent iteration over the breakers, it does not block creation of new breakers.
+	 * The iterator does not support remove()
+	 */
+	@Override
+	public Iterator<CircuitBreaker> iterator() {
+		return Collections.unmodifiableCollection(circuitBreakers.values()).iterator();
+	}
+
+	/**
+	 * Sum of CircuitBreaker.getEstimatedMemoryFootprint() plus an estimate of the map entries. Like the breaker
+	 * estimate, it is not measured and assumes a 64-bit HotSpot JVM with compressed oops
+	 * @return estimated size in bytes
+	 */
+	public long getEstimatedMemoryFootprint() {
+		long memoryFootprint = 0;
+		for(CircuitBreaker circuitBreaker:circuitBreakers.values()) {
+			memoryFootprint += ESTIMATED_ENTRY_MEMORY_FOOTPRINT + circuitBreaker.getEstimatedMemoryFootprint();
+		}
+		return memoryFootprint;
+	}
+}
@@ -1,40 +1,125 @@
 package com.geckotechnology.simpleCircuitBreaker;
 
+/**
+ * Immutable snapshot of a state transition. The details text is only built when getDetails() or toString() is called
+ */
 public class CircuitBreakerStateChangeEvent {
 	
-	private String circuitBreakerName;
-	private long creationTimestamp = System.currentTimeMillis();
-	private BreakerStateType newBreakerStateType;
-	private String details;
+	private final String circuitBreakerName;
+	private final long creationTimestamp = System.currentTimeMillis();
+	private final long clockTimestamp;
+	private final BreakerStateType previousBreakerStateType;
+	private final BreakerStateType newBreakerStateType;
+	private final StateChangeReason reason;
+	private final long callCount;
+	private final long failureCallCount;
+	private final long slowCallDurationCount;
 	
-	CircuitBreakerStateChangeEvent(String circuitBreakerName, BreakerStateType newBreakerStateType, String details) {
+	CircuitBreakerStateChangeEvent(String circuitBreakerName, long clockTimestamp,
+			BreakerStateType previousBreakerStateType, BreakerStateType newBreakerStateType,
+			StateChangeReason reason, long callCount, long failureCallCount, long slowCallDurationCount) {
 		this.circuitBreakerName = circuitBreakerName;
+		this.clockTimestamp = clockTimestamp;
+		this.previousBreakerStateType = previousBreakerStateType;
 		this.newBreakerStateType = newBreakerStateType;
-		this.details = details;
+		this.reason = reason;
+		this.callCount = callCount;
+		this.failureCallCount = failureCallCount;
+		this.slowCallDurationCount = slowCallDurationCount;
 	}
 	
 	public String getCircuitBreakerName() {
 		return circuitBreakerName;
 	}
 	
+	/**
+	 * @return wall clock time of the transition, in ms
+	 */
 	public long getCreationTime() {
 		return creationTimestamp;
 	}
 	
+	/**
+	 * Time of the transition read from the breaker clock (monotonic by default). Use it to measure
+	 * durations between events, it is not related to wall clock time
+	 * @return time in ms
+	 */
+	public long getClockTime() {
+		return clockTimestamp;
+	}
+	
+	/**
+	 * @return state before the transition, null for the initial state
+	 */
+	public BreakerStateType getPreviousBreakerStateType() {
+		return previousBreakerStateType;
+	}
+	
 	public BreakerStateType getNewBreakerStateType() {
 		return newBreakerStateType;
 	}
 	
+	public StateChangeReason getReason() {
+		return reason;
+	}
+	
+	/**
+	 * Counts are the ones the decision was based on. They are 0 when reason.isWithCountStats() is false
+	 */
+	public long getCallCount() {
+		return callCount;
+	}
+	
+	public long getFailureCallCount() {
+		return failureCallCount;
+	}
+	
+	public long getSlowCallDurationCount() {
+		return slowCallDurationCount;
+	}
+	
+	/**
+	 * @return failure rate in %, -1 if there is no call
+	 */
+	public float getFailureRate() {
+		return getCountStats().failureRate;
+	}
+	
+	/**
+	 * @return slow call rate in %, -1 if there is no call
+	 */
+	public float getSlowCallRate() {
+		return getCountStats().slowCallRate;
+	}
+	
+	/**
+	 * Rendered on each call
+	 * @return string such as: Threshold exceeded. countStats:{callCount:30, failureCallCount:12, slowCallDurationCount:14, failureRate:40.0, slowCallRate:46.666668}
+	 */
 	public String getDetails() {
-		return details;
+		if(!reason.isWithCountStats())
+			return reason.getDescription();
+		CountStats countStats = getCountStats();
+		return reason.getDescription() + ". countStats:{" +
+				(reason.isWithRates() ? countStats.toCountAndRatioStatsString() : countStats.toCountStatsString()) + "}";
+	}
+	
+	private CountStats getCountStats() {
+		CountStats countStats = new CountStats();
+		countStats.callCount = callCount;
+		countStats.failureCallCount = failureCallCount;
+		countStats.slowCallDurationCount = slowCallDurationCount;
+		countStats.calculateRates();
+		return countStats;
 	}
 	
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
 		sb.append("circuitBreakerName:").append(circuitBreakerName);
+		sb.append(", ").append("previousBreakerStateType:").append(previousBreakerStateType);
 		sb.append(", ").append("newBreakerStateType:").append(newBreakerStateType);
 		sb.append(", ").append("creationTimestamp:").append(creationTimestamp);
-		sb.append(", ").append("details:\"").append(details).append("\"");
+		sb.append(", ").append("details:\"").append(getDetails()).append("\"");
 		return sb.toString();
 	}
 }
@@ -0,0 +1,45 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+/**
+ * Clock shared by all breakers where one daemon thread updates a volatile value every ms,
+ * so reading the time is a single volatile read. Precision is around 1 ms, or the OS timer
+ * resolution if worse. The thread is started when the class is first used.
+ */
+public class CoarseBreakerClock implements BreakerClock {
+
+	private static final long TICK_PERIOD = 1;
+	private static final CoarseBreakerClock INSTANCE = new CoarseBreakerClock();
+	private volatile long currentTimeMillis;
+	
+	private CoarseBreakerClock() {
+		currentTimeMillis = MonotonicBreakerClock.getInstance().currentTimeMillis();
+		Thread tickerThread = new Thread("SimpleCircuitBreaker-CoarseBreakerClock") {
+			@Override
+			public void run() {
+				while(true) {
+					try {
+						Thread.sleep(TICK_PERIOD);
+					} catch (InterruptedException e) {
+						//never interrupted by the library, keep ticking
+					}
+					currentTimeMillis = MonotonicBreakerClock.getInstance().currentTimeMillis();
+				}
+			}
+		};
+		tickerThread.setDaemon(true);
+		tickerThread.start();
+	}
+	
+	public static CoarseBreakerClock getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public long currentTimeMillis() {
+		return currentTimeMillis;
+	}
+	
+	public String toString() {
+		return "COARSE";
+	}
+}
@@ -0,0 +1,116 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import java.util.Arrays;
+
+/**
+ * Outcomes of the last slidingWindowSize calls, stored in a ring buffer of 2 bits per call
+ * (failure bit, slow bit), so 32 calls per long. Adding a call evicts the oldest one in O(1)
+ * and does not need the current time. The running counts are written under this object monitor and read without it.
+ */
+class CountBasedSlidingWindow extends SlidingWindowPadding implements SlidingWindowInterface {
+
+	private static final int BITS_PER_CALL = 2;
+	private static final int CALLS_PER_LONG = 64 / BITS_PER_CALL;
+	private static final long FAILURE_BIT = 1L;
+	private static final long SLOW_BIT = 2L;
+	private static final long CALL_MASK = FAILURE_BIT | SLOW_BIT;
+
+	private final int slidingWindowSize;
+	private final long outcomes[];
+	private volatile int callCount = 0;
+	private volatile int failureCallCount = 0;
+	private volatile int slowCallDurationCount = 0;
+	private int nextCallIndex = 0;
+
+	CountBasedSlidingWindow(int slidingWindowSize) {
+		this.slidingWindowSize = slidingWindowSize;
+		outcomes = new long[(slidingWindowSize + CALLS_PER_LONG - 1) / CALLS_PER_LONG];
+	}
+
+	@Override
+	public synchronized void reset(long bucketTimestamp) {
+		Arrays.fill(outcomes, 0);
+		callCount = 0;
+		failureCallCount = 0;
+		slowCallDurationCount = 0;
+		nextCallIndex = 0;
+	}
+
+	@Override
+	public synchronized void addCall(long bucketTimestamp, boolean isFailureCall, boolean isSlowCall, long callDuration) {
+		int word = nextCallIndex / CALLS_PER_LONG;
+		int shift = (nextCallIndex % CALLS_PER_LONG) * BITS_PER_CALL;
+		if(callCount == slidingWindowSize) {
+			//window is full, evict the oldest call which is stored at the same index
+			long evictedCall = (outcomes[word] >>> shift) & CALL_MASK;
+			if((evictedCall & FAILURE_BIT) != 0)
+				failureCallCount--;
+			if((evictedCall & SLOW_BIT) != 0)
+				slowCallDurationCount--;
+		}
+		else
+			callCount++;
+		long newCall = 0;
+		if(isFailureCall) {
+			newCall |= FAILURE_BIT;
+			failureCallCount++;
+		}
+		if(isSlowCall) {
+			newCall |= SLOW_BIT;
+			slowCallDurationCount++;
+		}
+		outcomes[word] = (outcomes[word] & ~(CALL_MASK << shift)) | (newCall << shift);
+		nextCallIndex++;
+		if(nextCallIndex == slidingWindowSize)
+			nextCallIndex = 0;
+	}
+
+	@Override
+	public long getCallCount(long bucketTimestamp) {
+		return callCount;
+	}
+
+	@Override
+	public long getFailureCallCount(long bucketTimestamp) {
+		return failureCallCount;
+	}
+
+	@Override
+	public long getSlowCallDurationCount(long bucketTimestamp) {
+		return slowCallDurationCount;
+	}
+
+	/**
+	 * Latency histograms are only kept by time based windows
+	 */
+	@Override
+	public void addLatencyHistogram(long bucketTimestamp, long histogram[]) {
+	}
+
+	@Override
+	public long getEstimatedMemoryFootprint() {
+		//object with padding is 96 bytes, array header is 16 bytes
+		return 96 + 16 + 8L * outcomes.length;
+	}
+
+	@Override
+	public CountStats getCountStats() {
+		CountStats countStats = new CountStats();
+		countStats.callCount = callCount;
+		countStats.failureCallCount = failureCallCount;
+		countStats.slowCallDurationCount = slowCallDurationCount;
+		return countStats;
+	}
+
+	@Override
+	public CountStats calculateAggregatedCountStatsForUnitTest() {
+		CountStats aggregatedCountStats = new CountStats();
+		//calls never recorded have both bits at 0, only the call count needs the fill level
+		aggregatedCountStats.callCount = callCount;
+		for(long word:outcomes) {
+			aggregatedCountStats.failureCallCount += Long.bitCount(word & 0x5555555555555555L);
+			aggregatedCountStats.slowCallDurationCount += Long.bitCount(word & 0xAAAAAAAAAAAAAAAAL);
+		}
+		return aggregatedCountStats;
+	}
+}
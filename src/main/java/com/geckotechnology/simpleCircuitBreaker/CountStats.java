@@ -1,9 +1,9 @@
 package com.geckotechnology.simpleCircuitBreaker;
 
 public class CountStats {
-    public int callCount = 0;
-    public int failureCallCount = 0;
-    public int slowCallDurationCount = 0;
+    public long callCount = 0;
+    public long failureCallCount = 0;
+    public long slowCallDurationCount = 0;
     public float failureRate = -1;
     public float slowCallRate = -1;
     
@@ -0,0 +1,25 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+/**
+ * Classifier recording any exception as a failure. This is the default classifier.
+ */
+public class DefaultBreakerExceptionClassifier implements BreakerExceptionClassifier {
+
+	private static final DefaultBreakerExceptionClassifier INSTANCE = new DefaultBreakerExceptionClassifier();
+	
+	private DefaultBreakerExceptionClassifier() {
+	}
+	
+	public static DefaultBreakerExceptionClassifier getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public boolean isFailure(Throwable throwable) {
+		return true;
+	}
+	
+	public String toString() {
+		return "DEFAULT";
+	}
+}
@@ -0,0 +1,23 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+/**
+ * What BreakerStateEventManager does with a new event when its queue is full
+ */
+public enum EventQueueOverflowPolicy {
+	/**
+	 * The oldest queued event is dropped
+	 */
+	DROP_OLDEST,
+	/**
+	 * The queued events of the same breaker are dropped and replaced by the new one, so listeners still get the latest
+	 * state of each breaker. If the queue holds no event of this breaker, the oldest event is dropped
+	 */
+	COALESCE,
+	/**
+	 * The thread performing the state transition waits for room in the queue. This thread is usually an application
+	 * thread making a call, so a slow listener stalls the calls of the breakers sharing the manager.
+	 * A thread delivering events, for example a listener moving a breaker, never waits: it drops the oldest event,
+	 * otherwise it would wait for itself
+	 */
+	BLOCK;
+}
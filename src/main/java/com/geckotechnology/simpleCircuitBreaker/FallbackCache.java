@@ -0,0 +1,138 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Last known good results per key, used by CircuitBreaker.executeWithFallback() to answer the calls the breaker rejects.
+ * Bounded by a number of entries and optionally by a total weight, for example an estimate of the size in bytes
+ * of the values. The least recently used entries are evicted first. Entries older than timeToLive are never returned.
+ * All methods lock the cache, which is meant for results of remote calls, not for a hot path of its own
+ */
+public class FallbackCache<K, V> {
+
+	private static class Entry<V> {
+		private final V value;
+		private final long timestamp;
+		private final long weight;
+
+		Entry(V value, long timestamp, long weight) {
+			this.value = value;
+			this.timestamp = timestamp;
+			this.weight = weight;
+		}
+	}
+
+	private final int maxEntries;
+	private final long timeToLive;
+	private final long maxWeight;
+	private final ToLongFunction<? super V> weigher;
+	private final BreakerClock clock;
+	//access order, the eldest entry is the least recently used
+	private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true);
+	private long totalWeight;
+	private long hitCount;
+	private long missCount;
+
+	/**
+	 * Cache bounded by its number of entries only, using MonotonicBreakerClock
+	 * @param maxEntries positive
+	 * @param timeToLive in ms, positive
+	 */
+	public FallbackCache(int maxEntries, long timeToLive) {
+		this(maxEntries, timeToLive, 0, null, MonotonicBreakerClock.getInstance());
+	}
+
+	/**
+	 * @param maxEntries positive
+	 * @param timeToLive in ms, positive
+	 * @param maxWeight maximum sum of the weights of the entries, 0 for no limit
+	 * @param weigher weight of a value, for example its estimated size in bytes. Can be null if maxWeight is 0
+	 * @param clock clock of the entry timestamps, usually the one of the breaker config
+	 */
+	public FallbackCache(int maxEntries, long timeToLive, long maxWeight, ToLongFunction<? super V> weigher, BreakerClock clock) {
+		if(maxEntries <= 0)
+			throw new IllegalArgumentException("maxEntries must be positive");
+		if(timeToLive <= 0)
+			throw new IllegalArgumentException("timeToLive must be positive");
+		if(maxWeight < 0)
+			throw new IllegalArgumentException("maxWeight must be positive or null");
+		if(maxWeight > 0 && weigher == null)
+			throw new IllegalArgumentException("weigher can not be null if maxWeight is set");
+		if(clock == null)
+			throw new IllegalArgumentException("clock can not be null");
+		this.maxEntries = maxEntries;
+		this.timeToLive = timeToLive;
+		this.maxWeight = maxWeight;
+		this.weigher = weigher;
+		this.clock = clock;
+	}
+
+	/**
+	 * Stores value as the last known good result for key, evicting the least recently used entries if a bound is exceeded.
+	 * A value heavier than maxWeight on its own is not stored, and removes the previous value of key
+	 */
+	public synchronized void put(K key, V value) {
+		long weight = maxWeight > 0 ? weigher.applyAsLong(value) : 0;
+		remove(key);
+		if(maxWeight > 0 && weight > maxWeight)
+			return;
+		entries.put(key, new Entry<V>(value, clock.currentTimeMillis(), weight));
+		totalWeight += weight;
+		Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+		while(entries.size() > maxEntries || (maxWeight > 0 && totalWeight > maxWeight)) {
+			totalWeight -= iterator.next().getValue().weight;
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * @return the last value stored for key, null if there is none or it is older than timeToLive
+	 */
+	public synchronized V get(K key) {
+		Entry<V> entry = entries.get(key);
+		if(entry != null && clock.currentTimeMillis() - entry.timestamp >= timeToLive) {
+			remove(key);
+			entry = null;
+		}
+		if(entry == null) {
+			missCount++;
+			return null;
+		}
+		hitCount++;
+		return entry.value;
+	}
+
+	public synchronized void remove(K key) {
+		Entry<V> entry = entries.remove(key);
+		if(entry != null)
+			totalWeight -= entry.weight;
+	}
+
+	/**
+	 * @return number of entries, expired ones included until they are read or evicted
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getTotalWeight() {
+		return totalWeight;
+	}
+
+	/**
+	 * @return number of get() calls which returned a value
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return number of get() calls which returned null
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+}
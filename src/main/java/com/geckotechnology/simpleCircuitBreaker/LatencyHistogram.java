@@ -0,0 +1,65 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+/**
+ * Log-linear layout of the latency histograms, in the spirit of HdrHistogram: durations below 8 ms have their own slot,
+ * then each power of 2 is split in 8 slots, so a slot covers at most 12.5% of its values. Durations of 2^24 ms (4.6 hours)
+ * or more are clamped into the last slot, so MAX_TRACKABLE_CALL_DURATION is the highest duration reported. Histograms themselves are plain primitive arrays of SLOT_COUNT counts owned by the windows.
+ */
+class LatencyHistogram {
+
+	private static final int PRECISION_BITS = 3;
+	private static final int SUB_SLOT_COUNT = 1 << PRECISION_BITS;
+	private static final int MAX_EXPONENT = 23;
+	static final int SLOT_COUNT = SUB_SLOT_COUNT + (MAX_EXPONENT - PRECISION_BITS + 1) * SUB_SLOT_COUNT;
+	static final long MAX_TRACKABLE_CALL_DURATION = (1L << (MAX_EXPONENT + 1)) - 1;
+
+	private LatencyHistogram() {
+	}
+
+	/**
+	 * @param callDuration in ms, negative values count as 0, values above MAX_TRACKABLE_CALL_DURATION count as it
+	 * @return the slot counting this duration
+	 */
+	static int getSlot(long callDuration) {
+		if(callDuration < SUB_SLOT_COUNT)
+			return callDuration < 0 ? 0 : (int)callDuration;
+		int exponent = 63 - Long.numberOfLeadingZeros(callDuration);
+		if(exponent > MAX_EXPONENT)
+			return SLOT_COUNT - 1;
+		int mantissa = (int)(callDuration >>> (exponent - PRECISION_BITS));
+		return SUB_SLOT_COUNT + (exponent - PRECISION_BITS) * SUB_SLOT_COUNT + mantissa - SUB_SLOT_COUNT;
+	}
+
+	/**
+	 * @return the highest duration counted in slot, so percentiles up to MAX_TRACKABLE_CALL_DURATION are never
+	 * under-estimated. Longer durations are clamped and reported as MAX_TRACKABLE_CALL_DURATION
+	 */
+	static long getHighestCallDuration(int slot) {
+		if(slot < SUB_SLOT_COUNT)
+			return slot;
+		int exponent = (slot - SUB_SLOT_COUNT) / SUB_SLOT_COUNT + PRECISION_BITS;
+		long mantissa = (slot - SUB_SLOT_COUNT) % SUB_SLOT_COUNT + SUB_SLOT_COUNT;
+		return ((mantissa + 1) << (exponent - PRECISION_BITS)) - 1;
+	}
+
+	/**
+	 * @param histogram SLOT_COUNT counts
+	 * @param percentile between 0 and 100, for example 99.9
+	 * @return the duration in ms under which percentile % of the calls are, -1 if the histogram is empty
+	 */
+	static long getCallDurationAtPercentile(long histogram[], double percentile) {
+		long totalCount = 0;
+		for(long count:histogram)
+			totalCount += count;
+		if(totalCount == 0)
+			return -1;
+		long targetCount = Math.max(1, (long)Math.ceil(percentile * totalCount / 100d));
+		long cumulatedCount = 0;
+		for(int slot = 0; slot<histogram.length; slot++) {
+			cumulatedCount += histogram[slot];
+			if(cumulatedCount >= targetCount)
+				return getHighestCallDuration(slot);
+		}
+		return getHighestCallDuration(histogram.length - 1);
+	}
+}
@@ -0,0 +1,27 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+/**
+ * Clock based on System.nanoTime(), so not impacted by wall clock changes such as NTP steps.
+ * Values start at 0 when the class is loaded. This is the default clock.
+ */
+public class MonotonicBreakerClock implements BreakerClock {
+
+	private static final long ORIGIN_NANO_TIME = System.nanoTime();
+	private static final MonotonicBreakerClock INSTANCE = new MonotonicBreakerClock();
+	
+	private MonotonicBreakerClock() {
+	}
+	
+	public static MonotonicBreakerClock getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public long currentTimeMillis() {
+		return (System.nanoTime() - ORIGIN_NANO_TIME) / 1000000L;
+	}
+	
+	public String toString() {
+		return "MONOTONIC";
+	}
+}
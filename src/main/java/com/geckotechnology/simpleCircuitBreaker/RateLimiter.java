@@ -0,0 +1,80 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed window rate limiter: at most limitForPeriod calls per window of limitRefreshPeriod ms, windows being
+ * aligned on the breaker clock the same way as the sliding window buckets. The window index and the number of
+ * permits taken in it are packed in a single AtomicLong, so a permit is one clock read and one CAS.
+ * Once the limit is reached, further calls of the same window are rejected without any CAS, only the counter
+ * of rejected calls is incremented
+ */
+class RateLimiter {
+
+	private final BreakerClock clock;
+	private final int limitForPeriod;
+	private final long limitRefreshPeriod;
+	//window index in the 32 high bits, permits taken in the 32 low bits
+	private final AtomicLong windowAndPermitCount = new AtomicLong();
+	private final LongAdder rejectedCallCount = new LongAdder();
+
+	/**
+	 * @param limitForPeriod positive
+	 * @param limitRefreshPeriod window width in ms, positive
+	 */
+	RateLimiter(int limitForPeriod, long limitRefreshPeriod, BreakerClock clock) {
+		this.limitForPeriod = limitForPeriod;
+		this.limitRefreshPeriod = limitRefreshPeriod;
+		this.clock = clock;
+		windowAndPermitCount.set(getWindow() << 32);
+	}
+
+	/**
+	 * @return true if the call is within the limit of the current window
+	 */
+	boolean tryAcquire() {
+		if(tryAcquire(limitForPeriod))
+			return true;
+		rejectedCallCount.increment();
+		return false;
+	}
+
+	/**
+	 * Same as tryAcquire() with a limit given by the caller, for limits changing over time such as the retry budget.
+	 * A refused permit is not counted as a rejected call
+	 * @param limit maximum number of permits in the current window, up to Integer.MAX_VALUE
+	 */
+	boolean tryAcquire(long limit) {
+		long window = getWindow();
+		while(true) {
+			long current = windowAndPermitCount.get();
+			long currentWindow = current >>> 32;
+			long permitCount;
+			if((int)(window - currentWindow) > 0) {
+				//first call of a new window
+				currentWindow = window;
+				permitCount = 0;
+			}
+			else {
+				//same window, or a clock read older than the window installed by another thread, which remains the current one
+				permitCount = current & 0xFFFFFFFFL;
+				if(permitCount >= limit)
+					return false;
+			}
+			if(windowAndPermitCount.compareAndSet(current, (currentWindow << 32) | (permitCount + 1)))
+				return true;
+		}
+	}
+
+	long getRejectedCallCount() {
+		return rejectedCallCount.sum();
+	}
+
+	/**
+	 * Index truncated to 32 bits, compared with a wrapping difference. A wrong order needs 2^31 windows without any call
+	 */
+	private long getWindow() {
+		return (clock.currentTimeMillis() / limitRefreshPeriod) & 0xFFFFFFFFL;
+	}
+}
@@ -0,0 +1,62 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Settings and retry budget of CircuitBreaker.executeWithRetry(). Retries are counted in fixed periods of the sliding
+ * window duration (slidingWindowSize * slidingWindowBucketWidth), or of slidingWindowBucketWidth for a COUNT_BASED
+ * window, with the same lock-free counter as the rate limiter
+ */
+class Retry {
+
+	private final int maxRetryAttempts;
+	private final long retryWaitDuration;
+	private final float retryBackoffMultiplier;
+	private final long maxRetryWaitDuration;
+	private final float retryBudgetPercentage;
+	//null if retryBudgetPercentage is 0
+	private final RateLimiter retryCounter;
+
+	Retry(CircuitBreakerConfig config) {
+		maxRetryAttempts = config.getMaxRetryAttempts();
+		retryWaitDuration = config.getRetryWaitDuration();
+		retryBackoffMultiplier = config.getRetryBackoffMultiplier();
+		maxRetryWaitDuration = config.getMaxRetryWaitDuration();
+		retryBudgetPercentage = config.getRetryBudgetPercentage();
+		if(retryBudgetPercentage > 0)
+			retryCounter = new RateLimiter(Integer.MAX_VALUE, config.getBudgetPeriod(), config.getClock());
+		else
+			retryCounter = null;
+	}
+
+	int getMaxRetryAttempts() {
+		return maxRetryAttempts;
+	}
+
+	/**
+	 * Takes a retry from the budget of the current period. One retry per period is always permitted,
+	 * so that a breaker without successful calls yet still retries
+	 * @param successCallCount successful calls of the sliding window
+	 * @return true if retryBudgetPercentage of successCallCount is not reached yet
+	 */
+	boolean tryAcquireRetryBudget(long successCallCount) {
+		if(retryCounter == null)
+			return true;
+		long limit = (long)(successCallCount * retryBudgetPercentage / 100f);
+		return retryCounter.tryAcquire(Math.max(1, Math.min(Integer.MAX_VALUE, limit)));
+	}
+
+	/**
+	 * Exponential backoff with equal jitter: half of the backoff is fixed, the other half random,
+	 * so that callers failing together do not retry together
+	 * @param retryAttempt 1 for the first retry
+	 * @return wait duration in ms
+	 */
+	long getWaitDuration(int retryAttempt) {
+		double backoff = retryWaitDuration * Math.pow(retryBackoffMultiplier, retryAttempt - 1);
+		long waitDuration = (long)Math.min(maxRetryWaitDuration, backoff);
+		if(waitDuration <= 1)
+			return waitDuration;
+		return waitDuration / 2 + ThreadLocalRandom.current().nextLong(waitDuration / 2 + 1);
+	}
+}
@@ -0,0 +1,37 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+/**
+ * Sliding window of call outcomes used in CLOSED state. addCall() implementations are synchronized,
+ * count getters are not and may return slightly stale values.
+ * bucketTimestamp is the current time divided by the bucket width. It is ignored by count based windows,
+ * so the caller does not need to read the clock for them.
+ */
+interface SlidingWindowInterface {
+	void addCall(long bucketTimestamp, boolean isFailureCall, boolean isSlowCall, long callDuration);
+	/**
+	 * Forget all calls, without allocating
+	 */
+	void reset(long bucketTimestamp);
+	long getCallCount(long bucketTimestamp);
+	long getFailureCallCount(long bucketTimestamp);
+	long getSlowCallDurationCount(long bucketTimestamp);
+	/**
+	 * Add the latency histogram of the buckets in the window at bucketTimestamp, without lock
+	 * @param histogram LatencyHistogram.SLOT_COUNT counts, updated
+	 */
+	void addLatencyHistogram(long bucketTimestamp, long histogram[]);
+	/**
+	 * @return rough size in bytes of this object and its arrays, for a 64-bit JVM with compressed oops
+	 */
+	long getEstimatedMemoryFootprint();
+	/**
+	 * Used for unit test. Caller must hold this object monitor
+	 * @return the running counts
+	 */
+	CountStats getCountStats();
+	/**
+	 * Used for unit test. Caller must hold this object monitor
+	 * @return the counts recalculated from the stored outcomes
+	 */
+	CountStats calculateAggregatedCountStatsForUnitTest();
+}
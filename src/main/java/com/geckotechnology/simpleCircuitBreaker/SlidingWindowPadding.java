@@ -0,0 +1,14 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+/**
+ * Padding against false sharing between the stripes of the CLOSED state. The JVM may reorder the fields of a class,
+ * but always lays out the fields of a superclass before the ones of its subclasses. The counters of a sliding window
+ * therefore start at least 64 bytes after the end of the previous object. The int fills the gap after the object header,
+ * so that no field of a subclass goes there
+ */
+abstract class SlidingWindowPadding {
+	@SuppressWarnings("unused")
+	private long p0, p1, p2, p3, p4, p5, p6;
+	@SuppressWarnings("unused")
+	private int p7;
+}
@@ -0,0 +1,6 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+public enum SlidingWindowType {
+	TIME_BASED,
+	COUNT_BASED;
+}
@@ -0,0 +1,39 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+/**
+ * Why the breaker changed state. The description is the text used by CircuitBreakerStateChangeEvent.getDetails()
+ */
+public enum StateChangeReason {
+	INITIAL_STATE("initial state", false, false),
+	THRESHOLD_EXCEEDED("Threshold exceeded", true, true),
+	WAIT_DURATION_IN_OPEN_STATE_OVER("WaitDurationInOpenState is over", false, false),
+	WAIT_DURATION_IN_OPEN_STATE_OVER_NO_HALF_OPEN("WaitDurationInOpenState is over and permittedNumberOfCallsInHalfOpenState=0", false, false),
+	MAX_DURATION_OPEN_IN_HALF_OPEN_STATE_OVER("MaxDurationOpenInHalfOpenState is over", true, false),
+	HALF_OPEN_THRESHOLD_EXCEEDED("Reached permittedNumberOfCallsInHalfOpenState and threshold exceeded", true, true),
+	HALF_OPEN_NO_THRESHOLD_EXCEEDED("Reached permittedNumberOfCallsInHalfOpenState and no threshold exceeded", true, true);
+	
+	private final String description;
+	private final boolean withCountStats;
+	private final boolean withRates;
+	
+	private StateChangeReason(String description, boolean withCountStats, boolean withRates) {
+		this.description = description;
+		this.withCountStats = withCountStats;
+		this.withRates = withRates;
+	}
+	
+	public String getDescription() {
+		return description;
+	}
+	
+	/**
+	 * @return true if the counts of the event are meaningful for this reason
+	 */
+	public boolean isWithCountStats() {
+		return withCountStats;
+	}
+	
+	boolean isWithRates() {
+		return withRates;
+	}
+}
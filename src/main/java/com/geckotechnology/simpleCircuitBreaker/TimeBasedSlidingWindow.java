@@ -0,0 +1,229 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import java.util.Arrays;
+
+/**
+ * slidingWindowSize buckets of slidingWindowBucketWidth ms each (one second by default). In striped mode the CLOSED state owns several
+ * instances and each thread records into its own one, so the writes of different cores do not hit
+ * the same cache lines. Recording is guarded by this object monitor. The count getters can be called
+ * without the lock, so the running counts are volatile: they may be slightly stale, the same way LongAdder.sum()
+ * is not an atomic snapshot.
+ * Stripes are whole windows rather than LongAdder cells, as moving to a new bucket clears the counts of the expired one
+ * and a cell holding only running sums could not tell which part of them expires.
+ */
+class TimeBasedSlidingWindow extends SlidingWindowPadding implements SlidingWindowInterface {
+
+	private static final int CALL_COUNT_OFFSET = 0;
+	private static final int FAILURE_CALL_COUNT_OFFSET = 1;
+	private static final int SLOW_CALL_DURATION_COUNT_OFFSET = 2;
+	private static final int BUCKET_STRIDE = 3;
+
+	private final int slidingWindowSize;
+	//written under the lock, read without it
+	private volatile long callCount = 0;
+	private volatile long failureCallCount = 0;
+	private volatile long slowCallDurationCount = 0;
+	//the 3 counts of a bucket are next to each other, so recording a call writes a single cache line
+    private final long buckets[];
+    //LatencyHistogram.SLOT_COUNT counts per bucket, null if latency histograms are disabled
+    private final int latencyHistograms[];
+    private volatile long lastCallBucketTimestamp = 0;
+
+	TimeBasedSlidingWindow(int slidingWindowSize, long bucketTimestamp) {
+		this(slidingWindowSize, bucketTimestamp, false);
+	}
+
+	TimeBasedSlidingWindow(int slidingWindowSize, long bucketTimestamp, boolean isLatencyHistogramEnabled) {
+		this.slidingWindowSize = slidingWindowSize;
+		buckets = new long[slidingWindowSize * BUCKET_STRIDE];
+		latencyHistograms = isLatencyHistogramEnabled ? new int[slidingWindowSize * LatencyHistogram.SLOT_COUNT] : null;
+		lastCallBucketTimestamp = bucketTimestamp;
+	}
+
+	@Override
+	public synchronized void reset(long bucketTimestamp) {
+		clearAllBuckets(bucketTimestamp);
+	}
+
+	private void clearAllBuckets(long bucketTimestamp) {
+		Arrays.fill(buckets, 0);
+		if(latencyHistograms != null)
+			Arrays.fill(latencyHistograms, 0);
+		callCount = 0;
+		failureCallCount = 0;
+		slowCallDurationCount = 0;
+    	lastCallBucketTimestamp = bucketTimestamp;
+	}
+
+    /**
+     * bucketTimestamp is read by the caller before taking the lock, so a thread may come after another one
+     * which already moved to a later bucket. Its call then goes to its own bucket if still in the window,
+     * and is dropped otherwise. lastCallBucketTimestamp never moves backwards
+     */
+    @Override
+    public synchronized void addCall(long bucketTimestamp, boolean isFailureCall, boolean isSlowCall, long callDuration) {
+    	if(bucketTimestamp < lastCallBucketTimestamp) {
+    		if(lastCallBucketTimestamp - bucketTimestamp < slidingWindowSize)
+    			addToBucket(bucketTimestamp, isFailureCall, isSlowCall, callDuration);
+    		return;
+    	}
+    	if(lastCallBucketTimestamp != bucketTimestamp) {
+    		//compared to lastCallBucketTimestamp, we moved next bucket or more
+    		if((bucketTimestamp - lastCallBucketTimestamp) >= slidingWindowSize) {
+    			//compared to lastCallBucketTimestamp, there is more than slidingWindowSize difference
+    			//then clear all buckets
+    			clearAllBuckets(bucketTimestamp);
+    		}
+    		else {
+    			//only few buckets need to be cleared
+    			for(long timestamp = lastCallBucketTimestamp + 1; timestamp <= bucketTimestamp; timestamp++)
+    				clearBucket(timestamp);
+    			lastCallBucketTimestamp = bucketTimestamp;
+    		}
+    	}
+    	addToBucket(lastCallBucketTimestamp, isFailureCall, isSlowCall, callDuration);
+    }
+
+    private void addToBucket(long bucketTimestamp, boolean isFailureCall, boolean isSlowCall, long callDuration) {
+    	callCount++;
+    	if(isFailureCall)
+    		failureCallCount++;
+    	if(isSlowCall)
+    		slowCallDurationCount++;
+    	int bucket = getBucket(bucketTimestamp);
+    	buckets[bucket + CALL_COUNT_OFFSET]++;
+    	if(isFailureCall)
+    		buckets[bucket + FAILURE_CALL_COUNT_OFFSET]++;
+    	if(isSlowCall)
+    		buckets[bucket + SLOW_CALL_DURATION_COUNT_OFFSET]++;
+    	if(latencyHistograms != null)
+    		latencyHistograms[getBucketIndex(bucketTimestamp) * LatencyHistogram.SLOT_COUNT + LatencyHistogram.getSlot(callDuration)]++;
+    }
+
+    private void clearBucket(long bucketTimestamp) {
+    	int bucket = getBucket(bucketTimestamp);
+    	callCount -= buckets[bucket + CALL_COUNT_OFFSET];
+		buckets[bucket + CALL_COUNT_OFFSET] = 0;
+		failureCallCount -= buckets[bucket + FAILURE_CALL_COUNT_OFFSET];
+		buckets[bucket + FAILURE_CALL_COUNT_OFFSET] = 0;
+		slowCallDurationCount -= buckets[bucket + SLOW_CALL_DURATION_COUNT_OFFSET];
+		buckets[bucket + SLOW_CALL_DURATION_COUNT_OFFSET] = 0;
+		if(latencyHistograms != null) {
+			int firstSlot = getBucketIndex(bucketTimestamp) * LatencyHistogram.SLOT_COUNT;
+			Arrays.fill(latencyHistograms, firstSlot, firstSlot + LatencyHistogram.SLOT_COUNT, 0);
+		}
+    }
+
+    /**
+     * @return the index in buckets of the first count of the bucket holding bucketTimestamp
+     */
+    private int getBucket(long bucketTimestamp) {
+    	return getBucketIndex(bucketTimestamp) * BUCKET_STRIDE;
+    }
+
+    /**
+     * The clock may start close to 0, so expired timestamps can be negative
+     * @return the bucket number, between 0 and slidingWindowSize - 1
+     */
+    private int getBucketIndex(long bucketTimestamp) {
+    	int bucket = (int)(bucketTimestamp % slidingWindowSize);
+    	if(bucket < 0)
+    		bucket += slidingWindowSize;
+    	return bucket;
+    }
+
+    @Override
+    public long getCallCount(long bucketTimestamp) {
+    	long lastTimestamp = lastCallBucketTimestamp;
+    	if(isWindowExpired(lastTimestamp, bucketTimestamp))
+    		return 0;
+    	return callCount - sumExpiredBuckets(CALL_COUNT_OFFSET, lastTimestamp, bucketTimestamp);
+    }
+
+    @Override
+    public long getFailureCallCount(long bucketTimestamp) {
+    	long lastTimestamp = lastCallBucketTimestamp;
+    	if(isWindowExpired(lastTimestamp, bucketTimestamp))
+    		return 0;
+    	return failureCallCount - sumExpiredBuckets(FAILURE_CALL_COUNT_OFFSET, lastTimestamp, bucketTimestamp);
+    }
+
+    @Override
+    public long getSlowCallDurationCount(long bucketTimestamp) {
+    	long lastTimestamp = lastCallBucketTimestamp;
+    	if(isWindowExpired(lastTimestamp, bucketTimestamp))
+    		return 0;
+    	return slowCallDurationCount - sumExpiredBuckets(SLOW_CALL_DURATION_COUNT_OFFSET, lastTimestamp, bucketTimestamp);
+    }
+
+    /**
+     * @return true if the last call of this stripe is out of the window at bucketTimestamp, so none of its calls counts
+     */
+    private boolean isWindowExpired(long lastTimestamp, long bucketTimestamp) {
+    	return bucketTimestamp - lastTimestamp >= slidingWindowSize;
+    }
+
+    /**
+     * A stripe not used recently still holds buckets which are out of the window at bucketTimestamp.
+     * They are only cleared by the next addCall() on this stripe, so readers skip them without writing.
+     * Fully expired stripes are handled by the caller without reading any bucket
+     * @param offset which of the 3 counts of a bucket to sum
+     * @return the sum of the buckets older than bucketTimestamp - slidingWindowSize
+     */
+    private long sumExpiredBuckets(int offset, long lastTimestamp, long bucketTimestamp) {
+    	if(lastTimestamp >= bucketTimestamp)
+    		return 0;
+    	long sum = 0;
+    	long firstExpiredTimestamp = lastTimestamp - slidingWindowSize + 1;
+    	long lastExpiredTimestamp = Math.min(bucketTimestamp - slidingWindowSize, lastTimestamp);
+    	for(long timestamp = firstExpiredTimestamp; timestamp <= lastExpiredTimestamp; timestamp++)
+    		sum += buckets[getBucket(timestamp) + offset];
+    	return sum;
+    }
+
+    /**
+     * Like the count getters, buckets not yet cleared but out of the window at bucketTimestamp are skipped
+     */
+    @Override
+    public void addLatencyHistogram(long bucketTimestamp, long histogram[]) {
+    	if(latencyHistograms == null)
+    		return;
+    	long lastTimestamp = lastCallBucketTimestamp;
+    	long firstTimestamp = Math.max(lastTimestamp, bucketTimestamp) - slidingWindowSize + 1;
+    	long lastValidTimestamp = Math.min(lastTimestamp, bucketTimestamp);
+    	for(long timestamp = firstTimestamp; timestamp <= lastValidTimestamp; timestamp++) {
+    		int firstSlot = getBucketIndex(timestamp) * LatencyHistogram.SLOT_COUNT;
+    		for(int slot = 0; slot<LatencyHistogram.SLOT_COUNT; slot++)
+    			histogram[slot] += latencyHistograms[firstSlot + slot];
+    	}
+    }
+
+    @Override
+    public long getEstimatedMemoryFootprint() {
+    	//object with padding is 120 bytes, array header is 16 bytes
+    	long memoryFootprint = 120 + 16 + 8L * buckets.length;
+    	if(latencyHistograms != null)
+    		memoryFootprint += 16 + 4L * latencyHistograms.length;
+    	return memoryFootprint;
+    }
+
+    @Override
+    public CountStats getCountStats() {
+    	CountStats countStats = new CountStats();
+    	countStats.callCount = callCount;
+    	countStats.failureCallCount = failureCallCount;
+    	countStats.slowCallDurationCount = slowCallDurationCount;
+    	return countStats;
+    }
+
+    @Override
+    public CountStats calculateAggregatedCountStatsForUnitTest() {
+    	CountStats aggregatedCountStats = new CountStats();
+    	for(int i = 0; i<buckets.length; i += BUCKET_STRIDE) {
+    		aggregatedCountStats.callCount += buckets[i + CALL_COUNT_OFFSET];
+    		aggregatedCountStats.failureCallCount += buckets[i + FAILURE_CALL_COUNT_OFFSET];
+    		aggregatedCountStats.slowCallDurationCount += buckets[i + SLOW_CALL_DURATION_COUNT_OFFSET];
+    	}
+    	return aggregatedCountStats;
+    }
+}
@@ -0,0 +1,122 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class AdaptiveConcurrencyLimitTest {
+
+	private static CircuitBreaker createCircuitBreaker() {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setMaxConcurrentCalls(10);
+		config.setMinConcurrentCalls(2);
+		config.setSlowCallDurationThreshold(100);
+		//never trip, only the limit reacts
+		config.setFailureRateThreshold(0);
+		config.setSlowCallRateThreshold(0);
+		return new CircuitBreaker(config);
+	}
+
+	private static int acquireAll(CircuitBreaker circuitBreaker) {
+		int count = 0;
+		while(circuitBreaker.isClosedForThisCall())
+			count++;
+		return count;
+	}
+
+	@Test
+	public void testIncreaseAndDecrease() {
+		CircuitBreaker circuitBreaker = createCircuitBreaker();
+		assertEquals(circuitBreaker.getMetrics().getConcurrencyLimit(), 10);
+		for(int i = 0; i<6; i++)
+			assertTrue(circuitBreaker.isClosedForThisCall());
+		//multiplicative decrease
+		circuitBreaker.callSucceeded(200);
+		assertEquals(circuitBreaker.getMetrics().getConcurrencyLimit(), 9);
+		circuitBreaker.callSucceeded(200);
+		assertEquals(circuitBreaker.getMetrics().getConcurrencyLimit(), 8);
+		circuitBreaker.callFailed(10);
+		assertEquals(circuitBreaker.getMetrics().getConcurrencyLimit(), 7);
+		//3 calls in progress
+		assertEquals(acquireAll(circuitBreaker), 4);
+		//additive increase while the limit is used
+		circuitBreaker.callSucceeded(10);
+		CircuitBreakerMetrics metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getConcurrencyLimit(), 8);
+		assertEquals(metrics.getConcurrentCallCount(), 6);
+		assertEquals(acquireAll(circuitBreaker), 2);
+		for(int i = 0; i<8; i++)
+			circuitBreaker.callSucceeded(10);
+		metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getConcurrencyLimit(), 10);
+		assertEquals(metrics.getConcurrentCallCount(), 0);
+	}
+
+	@Test
+	public void testBounds() {
+		CircuitBreaker circuitBreaker = createCircuitBreaker();
+		for(int i = 0; i<30; i++) {
+			assertTrue(circuitBreaker.isClosedForThisCall());
+			circuitBreaker.callFailed(10);
+		}
+		assertEquals(circuitBreaker.getMetrics().getConcurrencyLimit(), 2);
+		assertEquals(acquireAll(circuitBreaker), 2);
+		circuitBreaker.callSucceeded(10);
+		circuitBreaker.callSucceeded(10);
+		assertEquals(circuitBreaker.getMetrics().getConcurrencyLimit(), 3);
+		//a single call in progress does not use the limit, no increase
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callSucceeded(10);
+		assertEquals(circuitBreaker.getMetrics().getConcurrencyLimit(), 3);
+	}
+
+	/**
+	 * Latency growing far below slowCallDurationThreshold, without failure, lowers the limit
+	 */
+	@Test
+	public void testLatencyGradient() {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setMaxConcurrentCalls(100);
+		config.setMinConcurrentCalls(10);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		for(int i = 0; i<100; i++) {
+			assertTrue(circuitBreaker.isClosedForThisCall());
+			circuitBreaker.callSucceeded(10);
+		}
+		assertEquals(circuitBreaker.getMetrics().getConcurrencyLimit(), 100);
+		//stable latency within the tolerance, no change
+		for(int i = 0; i<100; i++) {
+			assertTrue(circuitBreaker.isClosedForThisCall());
+			circuitBreaker.callSucceeded(15);
+		}
+		assertEquals(circuitBreaker.getMetrics().getConcurrencyLimit(), 100);
+		for(int i = 0; i<50; i++) {
+			assertTrue(circuitBreaker.isClosedForThisCall());
+			circuitBreaker.callSucceeded(100);
+		}
+		CircuitBreakerMetrics metrics = circuitBreaker.getMetrics();
+		assertTrue(metrics.getConcurrencyLimit() < 50);
+		assertTrue(metrics.getConcurrencyLimit() >= 10);
+		assertEquals(metrics.getFailureCallCount(), 0);
+		assertEquals(metrics.getSlowCallDurationCount(), 0);
+		assertEquals(metrics.getBreakerStateType(), BreakerStateType.CLOSED);
+	}
+
+	@Test
+	public void testFixedLimit() {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setMaxConcurrentCalls(5);
+		config.setFailureRateThreshold(0);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callFailed(10);
+		assertEquals(circuitBreaker.getMetrics().getConcurrencyLimit(), 5);
+		config.setMinConcurrentCalls(6);
+		try {
+			new CircuitBreaker(config);
+			fail("IllegalArgumentException expected");
+		}
+		catch(IllegalArgumentException e) {
+		}
+	}
+}
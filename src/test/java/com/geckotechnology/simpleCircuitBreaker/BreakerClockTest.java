@@ -0,0 +1,70 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class BreakerClockTest {
+
+	@Test
+	public void testMonotonicClock() {
+		BreakerClock clock = MonotonicBreakerClock.getInstance();
+		long start = clock.currentTimeMillis();
+		assertTrue(start >= 0);
+		TestUtils.sleep(200);
+		long end = clock.currentTimeMillis();
+		assertTrue(end - start >= 200);
+		assertTrue(end - start < 1000);
+	}
+
+	@Test
+	public void testCoarseClock() {
+		BreakerClock clock = CoarseBreakerClock.getInstance();
+		long start = clock.currentTimeMillis();
+		TestUtils.sleep(200);
+		long end = clock.currentTimeMillis();
+		//ticks every ms, allow some delay of the ticker thread
+		assertTrue(end - start >= 150);
+		assertTrue(end - start < 1000);
+		//a single daemon thread, whatever the number of breakers
+		int tickerThreadCount = 0;
+		for(Thread thread:Thread.getAllStackTraces().keySet()) {
+			if(thread.getName().equals("SimpleCircuitBreaker-CoarseBreakerClock")) {
+				assertTrue(thread.isDaemon());
+				tickerThreadCount++;
+			}
+		}
+		assertEquals(tickerThreadCount, 1);
+	}
+
+	/**
+	 * Test transitions : closed -> open -> half-open -> closed using the coarse clock
+	 */
+	@Test
+	public void testCoarseClockTransitions() {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setClock(CoarseBreakerClock.getInstance());
+		config.setSlidingWindowSize(5);
+		config.setSlidingWindowBucketWidth(100);
+		config.setMinimumNumberOfCalls(2);
+		config.setFailureRateThreshold(50);
+		config.setSlowCallRateThreshold(0);
+		config.setWaitDurationInOpenState(300);
+		config.setPermittedNumberOfCallsInHalfOpenState(1);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callFailed(10);
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callFailed(10);
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.OPEN);
+		assertFalse(circuitBreaker.isClosedForThisCall());
+
+		TestUtils.sleep(400);
+
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.HALF_OPEN);
+		circuitBreaker.callSucceeded(10);
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.CLOSED);
+	}
+}
@@ -0,0 +1,255 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class BreakerStateEventManagerTest {
+
+	/**
+	 * Executor running the tasks only when the test asks for it
+	 */
+	private static class ManualExecutor implements Executor {
+		private final LinkedList<Runnable> tasks = new LinkedList<Runnable>();
+
+		@Override
+		public synchronized void execute(Runnable command) {
+			tasks.add(command);
+		}
+
+		synchronized int getTaskCount() {
+			return tasks.size();
+		}
+
+		void runTasks() {
+			Runnable task;
+			while(true) {
+				synchronized(this) {
+					task = tasks.pollFirst();
+				}
+				if(task == null)
+					return;
+				task.run();
+			}
+		}
+	}
+
+	private static class RecordingListener implements BreakerStateEventListener {
+		private final List<CircuitBreakerStateChangeEvent> events = new ArrayList<CircuitBreakerStateChangeEvent>();
+
+		@Override
+		public synchronized void onCircuitBreakerStateChangeEvent(CircuitBreakerStateChangeEvent event) {
+			events.add(event);
+		}
+
+		synchronized List<CircuitBreakerStateChangeEvent> getEvents() {
+			return new ArrayList<CircuitBreakerStateChangeEvent>(events);
+		}
+	}
+
+	private static CircuitBreakerStateChangeEvent createEvent(long callCount) {
+		return createEvent("test", callCount);
+	}
+
+	private static CircuitBreakerStateChangeEvent createEvent(String circuitBreakerName, long callCount) {
+		return new CircuitBreakerStateChangeEvent(circuitBreakerName, 0, BreakerStateType.CLOSED, BreakerStateType.OPEN,
+				StateChangeReason.THRESHOLD_EXCEEDED, callCount, 0, 0);
+	}
+
+	@Test
+	public void testDropOldest() {
+		ManualExecutor executor = new ManualExecutor();
+		BreakerStateEventManager breakerStateEventManager = new BreakerStateEventManager(executor, 2, EventQueueOverflowPolicy.DROP_OLDEST);
+		RecordingListener listener = new RecordingListener();
+		//no listener, events are ignored
+		breakerStateEventManager.registerEvent(createEvent(0));
+		assertEquals(breakerStateEventManager.getQueuedEventCount(), 0);
+		breakerStateEventManager.addBreakerStateEventListener(listener);
+		for(int i = 1; i<=4; i++)
+			breakerStateEventManager.registerEvent(createEvent(i));
+		assertEquals(breakerStateEventManager.getQueuedEventCount(), 4);
+		assertEquals(breakerStateEventManager.getDroppedEventCount(), 2);
+		assertEquals(breakerStateEventManager.getPendingEventCount(), 2);
+		//a single dispatch task for all events
+		assertEquals(executor.getTaskCount(), 1);
+		executor.runTasks();
+		assertEquals(breakerStateEventManager.getPendingEventCount(), 0);
+		List<CircuitBreakerStateChangeEvent> events = listener.getEvents();
+		assertEquals(events.size(), 2);
+		assertEquals(events.get(0).getCallCount(), 3);
+		assertEquals(events.get(1).getCallCount(), 4);
+		//next event schedules a new task
+		breakerStateEventManager.registerEvent(createEvent(5));
+		assertEquals(executor.getTaskCount(), 1);
+		executor.runTasks();
+		assertEquals(listener.getEvents().size(), 3);
+	}
+
+	@Test
+	public void testCoalesce() {
+		ManualExecutor executor = new ManualExecutor();
+		BreakerStateEventManager breakerStateEventManager = new BreakerStateEventManager(executor, 2, EventQueueOverflowPolicy.COALESCE);
+		RecordingListener listener = new RecordingListener();
+		breakerStateEventManager.addBreakerStateEventListener(listener);
+		for(int i = 1; i<=3; i++)
+			breakerStateEventManager.registerEvent(createEvent(i));
+		assertEquals(breakerStateEventManager.getQueuedEventCount(), 3);
+		assertEquals(breakerStateEventManager.getDroppedEventCount(), 2);
+		executor.runTasks();
+		List<CircuitBreakerStateChangeEvent> events = listener.getEvents();
+		assertEquals(events.size(), 1);
+		assertEquals(events.get(0).getCallCount(), 3);
+	}
+
+	/**
+	 * Only the pending event of the same breaker is replaced
+	 */
+	@Test
+	public void testCoalesceKeepsOtherBreakers() {
+		ManualExecutor executor = new ManualExecutor();
+		BreakerStateEventManager breakerStateEventManager = new BreakerStateEventManager(executor, 2, EventQueueOverflowPolicy.COALESCE);
+		RecordingListener listener = new RecordingListener();
+		breakerStateEventManager.addBreakerStateEventListener(listener);
+		breakerStateEventManager.registerEvent(createEvent("A", 1));
+		breakerStateEventManager.registerEvent(createEvent("B", 2));
+		breakerStateEventManager.registerEvent(createEvent("A", 3));
+		assertEquals(breakerStateEventManager.getDroppedEventCount(), 1);
+		//no pending event of C, the oldest one is dropped
+		breakerStateEventManager.registerEvent(createEvent("C", 4));
+		assertEquals(breakerStateEventManager.getDroppedEventCount(), 2);
+		executor.runTasks();
+		List<CircuitBreakerStateChangeEvent> events = listener.getEvents();
+		assertEquals(events.size(), 2);
+		assertEquals(events.get(0).getCircuitBreakerName(), "A");
+		assertEquals(events.get(0).getCallCount(), 3);
+		assertEquals(events.get(1).getCircuitBreakerName(), "C");
+	}
+
+	@Test
+	public void testBlock() throws InterruptedException {
+		ManualExecutor executor = new ManualExecutor();
+		final BreakerStateEventManager breakerStateEventManager = new BreakerStateEventManager(executor, 1, EventQueueOverflowPolicy.BLOCK);
+		RecordingListener listener = new RecordingListener();
+		breakerStateEventManager.addBreakerStateEventListener(listener);
+		breakerStateEventManager.registerEvent(createEvent(1));
+		Thread thread = new Thread() {
+			public void run() {
+				breakerStateEventManager.registerEvent(createEvent(2));
+			}
+		};
+		thread.start();
+		thread.join(500);
+		assertTrue(thread.isAlive());
+		executor.runTasks();
+		thread.join();
+		executor.runTasks();
+		assertEquals(breakerStateEventManager.getDroppedEventCount(), 0);
+		List<CircuitBreakerStateChangeEvent> events = listener.getEvents();
+		assertEquals(events.size(), 2);
+		assertEquals(events.get(0).getCallCount(), 1);
+		assertEquals(events.get(1).getCallCount(), 2);
+	}
+
+	/**
+	 * A listener registering events on its own full queue must not wait for itself
+	 */
+	@Test
+	public void testBlockReentrantListener() throws InterruptedException {
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+		try {
+			final BreakerStateEventManager breakerStateEventManager = new BreakerStateEventManager(executorService, 1, EventQueueOverflowPolicy.BLOCK);
+			final CountDownLatch lastEventLatch = new CountDownLatch(1);
+			breakerStateEventManager.addBreakerStateEventListener(new BreakerStateEventListener() {
+				@Override
+				public void onCircuitBreakerStateChangeEvent(CircuitBreakerStateChangeEvent event) {
+					if(event.getCallCount() == 1) {
+						//the first event fills the queue, the second one finds it full
+						breakerStateEventManager.registerEvent(createEvent(2));
+						breakerStateEventManager.registerEvent(createEvent(3));
+					}
+					else if(event.getCallCount() == 3)
+						lastEventLatch.countDown();
+				}
+			});
+			breakerStateEventManager.registerEvent(createEvent(1));
+			assertTrue(lastEventLatch.await(5, TimeUnit.SECONDS));
+			assertEquals(breakerStateEventManager.getQueuedEventCount(), 3);
+			assertEquals(breakerStateEventManager.getDroppedEventCount(), 1);
+		}
+		finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testInjectedEventManager() {
+		ManualExecutor executor = new ManualExecutor();
+		BreakerStateEventManager breakerStateEventManager = new BreakerStateEventManager(executor, 10, EventQueueOverflowPolicy.DROP_OLDEST);
+		RecordingListener listener = new RecordingListener();
+		breakerStateEventManager.addBreakerStateEventListener(listener);
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setMinimumNumberOfCalls(1);
+		//one manager shared by 2 breakers
+		CircuitBreaker circuitBreaker1 = new CircuitBreaker(config, breakerStateEventManager);
+		CircuitBreaker circuitBreaker2 = new CircuitBreaker(config, breakerStateEventManager);
+		assertSame(circuitBreaker1.getBreakerStateEventManager(), breakerStateEventManager);
+		circuitBreaker2.callFailed(10);
+		executor.runTasks();
+		List<CircuitBreakerStateChangeEvent> events = listener.getEvents();
+		assertEquals(events.size(), 3);
+		assertEquals(events.get(0).getReason(), StateChangeReason.INITIAL_STATE);
+		assertEquals(events.get(1).getReason(), StateChangeReason.INITIAL_STATE);
+		assertEquals(events.get(2).getNewBreakerStateType(), BreakerStateType.OPEN);
+	}
+
+	private static Thread findDispatcherThread() {
+		for(Thread thread:Thread.getAllStackTraces().keySet()) {
+			if(thread.isAlive() && thread.getName().equals("SimpleCircuitBreaker-EventDispatcher"))
+				return thread;
+		}
+		return null;
+	}
+
+	/**
+	 * No thread without listener, a daemon thread once a listener is registered, no thread after shutdown
+	 */
+	@Test
+	public void testDefaultExecutorLifecycle() throws InterruptedException {
+		assertTrue(BreakerStateEventManager.shutdownDefaultExecutor(5000));
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setMinimumNumberOfCalls(1);
+		CircuitBreakerRegistry registry = new CircuitBreakerRegistry(config);
+		for(int i = 0; i<1000; i++)
+			registry.getOrCreate("breaker" + i).callFailed(10);
+		assertNull(findDispatcherThread());
+		CircuitBreaker circuitBreaker = registry.getOrCreate("withListener");
+		final CountDownLatch eventLatch = new CountDownLatch(1);
+		circuitBreaker.getBreakerStateEventManager().addBreakerStateEventListener(new BreakerStateEventListener() {
+			@Override
+			public void onCircuitBreakerStateChangeEvent(CircuitBreakerStateChangeEvent event) {
+				eventLatch.countDown();
+			}
+		});
+		circuitBreaker.callFailed(10);
+		assertTrue(eventLatch.await(5, TimeUnit.SECONDS));
+		Thread dispatcherThread = findDispatcherThread();
+		assertNotNull(dispatcherThread);
+		assertTrue(dispatcherThread.isDaemon());
+		assertTrue(BreakerStateEventManager.shutdownDefaultExecutor(5000));
+		dispatcherThread.join(5000);
+		assertFalse(dispatcherThread.isAlive());
+		//close removes the listener, so no thread is created again
+		circuitBreaker.getBreakerStateEventManager().close();
+		circuitBreaker.moveToHalfOpenState(circuitBreaker.getBreakerState(), StateChangeReason.WAIT_DURATION_IN_OPEN_STATE_OVER);
+		assertNull(findDispatcherThread());
+	}
+}
@@ -0,0 +1,128 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class BulkheadTest {
+
+	@Test
+	public void testMaxConcurrentCalls() {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setMaxConcurrentCalls(2);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		assertFalse(circuitBreaker.isClosedForThisCall());
+		CircuitBreakerMetrics metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getConcurrentCallCount(), 2);
+		assertEquals(metrics.getBulkheadRejectedCallCount(), 1);
+		assertEquals(metrics.getNotPermittedCallCount(), 1);
+		circuitBreaker.callSucceeded(10);
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callFailed(10);
+		circuitBreaker.callSucceeded(10);
+		metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getConcurrentCallCount(), 0);
+		assertEquals(metrics.getCallCount(), 3);
+		//outcome reported without permit does not give extra permits
+		circuitBreaker.callSucceeded(10);
+		assertEquals(circuitBreaker.getMetrics().getConcurrentCallCount(), 0);
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		assertFalse(circuitBreaker.isClosedForThisCall());
+	}
+
+	@Test
+	public void testHalfOpenPermitNotConsumed() {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setMaxConcurrentCalls(1);
+		config.setPermittedNumberOfCallsInHalfOpenState(2);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		circuitBreaker.moveToHalfOpenState(circuitBreaker.getBreakerState(), StateChangeReason.WAIT_DURATION_IN_OPEN_STATE_OVER);
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		//rejected by the bulkhead, the second HALF_OPEN permit is kept
+		assertFalse(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callSucceeded(10);
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callSucceeded(10);
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.CLOSED);
+		//bulkhead permit is given back when the state rejects the call
+		circuitBreaker.moveToForcedOpenState(circuitBreaker.getBreakerState(), StateChangeReason.INITIAL_STATE);
+		assertFalse(circuitBreaker.isClosedForThisCall());
+		CircuitBreakerMetrics metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getConcurrentCallCount(), 0);
+		assertEquals(metrics.getBulkheadRejectedCallCount(), 1);
+		assertEquals(metrics.getNotPermittedCallCount(), 2);
+	}
+
+	@Test
+	public void testMaxWaitDuration() throws InterruptedException {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setMaxConcurrentCalls(1);
+		config.setMaxWaitDurationInBulkhead(200);
+		final CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		//nobody releases, waits then gives up
+		long startTime = System.nanoTime();
+		assertFalse(circuitBreaker.isClosedForThisCall());
+		assertTrue(System.nanoTime() - startTime >= TimeUnit.MILLISECONDS.toNanos(190));
+		//released by another thread while waiting
+		Thread thread = new Thread() {
+			public void run() {
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+				}
+				circuitBreaker.callSucceeded(10);
+			}
+		};
+		thread.start();
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		thread.join();
+		assertEquals(circuitBreaker.getMetrics().getBulkheadRejectedCallCount(), 1);
+	}
+
+	@Test
+	public void testMultiThreaded() throws InterruptedException {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setMaxConcurrentCalls(3);
+		config.setMaxWaitDurationInBulkhead(5000);
+		final CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		final AtomicInteger concurrentCallCount = new AtomicInteger();
+		final AtomicInteger maxConcurrentCallCount = new AtomicInteger();
+		final int threadCount = 10;
+		final CountDownLatch doneLatch = new CountDownLatch(threadCount);
+		for(int t = 0; t<threadCount; t++) {
+			new Thread() {
+				public void run() {
+					for(int i = 0; i<20; i++) {
+						assertTrue(circuitBreaker.isClosedForThisCall());
+						int count = concurrentCallCount.incrementAndGet();
+						while(true) {
+							int max = maxConcurrentCallCount.get();
+							if(count <= max || maxConcurrentCallCount.compareAndSet(max, count))
+								break;
+						}
+						try {
+							Thread.sleep(1);
+						} catch (InterruptedException e) {
+						}
+						concurrentCallCount.decrementAndGet();
+						circuitBreaker.callSucceeded(1);
+					}
+					doneLatch.countDown();
+				}
+			}.start();
+		}
+		assertTrue(doneLatch.await(30, TimeUnit.SECONDS));
+		assertTrue(maxConcurrentCallCount.get() <= 3);
+		CircuitBreakerMetrics metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getBulkheadRejectedCallCount(), 0);
+		assertEquals(metrics.getConcurrentCallCount(), 0);
+	}
+}
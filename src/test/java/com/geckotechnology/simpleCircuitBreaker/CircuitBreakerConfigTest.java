@@ -24,6 +24,29 @@ public class CircuitBreakerConfigTest {
 		assertEquals(config.getMinimumNumberOfCalls(), 10);
 		assertEquals(config.getWaitDurationInOpenState(), 60000);
 		assertEquals(config.getMaxDurationOpenInHalfOpenState(), 120000);
+		assertEquals(config.getSlidingWindowStripeCount(), 1);
+		assertEquals(config.getSlidingWindowType(), SlidingWindowType.TIME_BASED);
+		assertEquals(config.getSlidingWindowBucketWidth(), 1000);
+		assertSame(config.getClock(), MonotonicBreakerClock.getInstance());
+		assertFalse(config.isLatencyHistogramEnabled());
+		assertEquals(config.getMaxConcurrentCalls(), 0);
+		assertEquals(config.getMaxWaitDurationInBulkhead(), 0);
+		assertEquals(config.getMinConcurrentCalls(), 0);
+		assertEquals(config.getPermitExpiryDurationInHalfOpenState(), 0);
+		assertEquals(config.getLimitForPeriod(), 0);
+		assertEquals(config.getLimitRefreshPeriod(), 1000);
+		assertEquals(config.getMaxRetryAttempts(), 0);
+		assertEquals(config.getRetryWaitDuration(), 500);
+		assertTrue(config.getRetryBackoffMultiplier() == 2f);
+		assertEquals(config.getMaxRetryWaitDuration(), 30000);
+		assertTrue(config.getRetryBudgetPercentage() == 20f);
+		assertTrue(config.getHedgingPercentile() == 95f);
+		assertTrue(config.getHedgingBudgetPercentage() == 0f);
+		assertEquals(config.getTimeoutDuration(), 0);
+		assertTrue(config.getWaitDurationInOpenStateMultiplier() == 1f);
+		assertEquals(config.getMaxWaitDurationInOpenState(), 600000);
+		assertTrue(config.getWaitDurationInOpenStateJitter() == 0f);
+		assertSame(config.getExceptionClassifier(), DefaultBreakerExceptionClassifier.getInstance());
 		String str = config.toString() + ",";
 		assertTrue(str.indexOf("name:,") != -1);
 		assertTrue(str.indexOf("failureRateThreshold:50.0,") != -1);
@@ -34,7 +57,30 @@ public class CircuitBreakerConfigTest {
 		assertTrue(str.indexOf("minimumNumberOfCalls:10,") != -1);
 		assertTrue(str.indexOf("waitDurationInOpenState:60000,") != -1);
 		assertTrue(str.indexOf("maxDurationOpenInHalfOpenState:120000,") != -1);
-		assertEquals(TestUtils.countChars(str, ','), 9); //9 variables
+		assertTrue(str.indexOf("slidingWindowStripeCount:1,") != -1);
+		assertTrue(str.indexOf("slidingWindowType:TIME_BASED,") != -1);
+		assertTrue(str.indexOf("slidingWindowBucketWidth:1000,") != -1);
+		assertTrue(str.indexOf("clock:MONOTONIC,") != -1);
+		assertTrue(str.indexOf("latencyHistogramEnabled:false,") != -1);
+		assertTrue(str.indexOf("exceptionClassifier:DEFAULT") != -1);
+		assertTrue(str.indexOf("maxConcurrentCalls:0,") != -1);
+		assertTrue(str.indexOf("maxWaitDurationInBulkhead:0,") != -1);
+		assertTrue(str.indexOf("permitExpiryDurationInHalfOpenState:0,") != -1);
+		assertTrue(str.indexOf("limitForPeriod:0,") != -1);
+		assertTrue(str.indexOf("limitRefreshPeriod:1000,") != -1);
+		assertTrue(str.indexOf("minConcurrentCalls:0,") != -1);
+		assertTrue(str.indexOf("maxRetryAttempts:0,") != -1);
+		assertTrue(str.indexOf("retryWaitDuration:500,") != -1);
+		assertTrue(str.indexOf("retryBackoffMultiplier:2.0,") != -1);
+		assertTrue(str.indexOf("maxRetryWaitDuration:30000,") != -1);
+		assertTrue(str.indexOf("retryBudgetPercentage:20.0,") != -1);
+		assertTrue(str.indexOf("hedgingPercentile:95.0,") != -1);
+		assertTrue(str.indexOf("hedgingBudgetPercentage:0.0,") != -1);
+		assertTrue(str.indexOf("timeoutDuration:0,") != -1);
+		assertTrue(str.indexOf("waitDurationInOpenStateMultiplier:1.0,") != -1);
+		assertTrue(str.indexOf("maxWaitDurationInOpenState:600000,") != -1);
+		assertTrue(str.indexOf("waitDurationInOpenStateJitter:0.0,") != -1);
+		assertEquals(TestUtils.countChars(str, ','), 32); //32 variables
 	}
 	
 	@Test
@@ -55,6 +101,28 @@ public class CircuitBreakerConfigTest {
 			assertEquals(config.getMinimumNumberOfCalls(), 5);
 			assertEquals(config.getWaitDurationInOpenState(), 8);
 			assertEquals(config.getMaxDurationOpenInHalfOpenState(), 9);
+			assertEquals(config.getSlidingWindowStripeCount(), 10);
+			assertEquals(config.getSlidingWindowType(), SlidingWindowType.COUNT_BASED);
+			assertEquals(config.getSlidingWindowBucketWidth(), 11);
+			assertSame(config.getClock(), CoarseBreakerClock.getInstance());
+			assertTrue(config.isLatencyHistogramEnabled());
+			assertEquals(config.getMaxConcurrentCalls(), 12);
+			assertEquals(config.getMaxWaitDurationInBulkhead(), 13);
+			assertEquals(config.getMinConcurrentCalls(), 11);
+			assertEquals(config.getPermitExpiryDurationInHalfOpenState(), 14);
+			assertEquals(config.getLimitForPeriod(), 15);
+			assertEquals(config.getLimitRefreshPeriod(), 16);
+			assertEquals(config.getMaxRetryAttempts(), 17);
+			assertEquals(config.getRetryWaitDuration(), 18);
+			assertTrue(config.getRetryBackoffMultiplier() == 1.5f);
+			assertEquals(config.getMaxRetryWaitDuration(), 19);
+			assertTrue(config.getRetryBudgetPercentage() == 21f);
+			assertTrue(config.getHedgingPercentile() == 22f);
+			assertTrue(config.getHedgingBudgetPercentage() == 23f);
+			assertEquals(config.getTimeoutDuration(), 24);
+			assertTrue(config.getWaitDurationInOpenStateMultiplier() == 2.5f);
+			assertEquals(config.getMaxWaitDurationInOpenState(), 25);
+			assertTrue(config.getWaitDurationInOpenStateJitter() == 26f);
 			CircuitBreaker breaker = new CircuitBreaker(config);
 			config = breaker.getCircuitBreakerConfig();
 			System.out.println("Round 2: from circuit breaker, check clone is ok");
@@ -77,6 +145,28 @@ public class CircuitBreakerConfigTest {
 		assertEquals(config.getMinimumNumberOfCalls(), 50);
 		assertEquals(config.getWaitDurationInOpenState(), 80);
 		assertEquals(config.getMaxDurationOpenInHalfOpenState(), 90);
+		assertEquals(config.getSlidingWindowStripeCount(), 100);
+		assertEquals(config.getSlidingWindowType(), SlidingWindowType.TIME_BASED);
+		assertEquals(config.getSlidingWindowBucketWidth(), 110);
+		assertSame(config.getClock(), MonotonicBreakerClock.getInstance());
+		assertFalse(config.isLatencyHistogramEnabled());
+		assertEquals(config.getMaxConcurrentCalls(), 120);
+		assertEquals(config.getMaxWaitDurationInBulkhead(), 130);
+		assertEquals(config.getMinConcurrentCalls(), 110);
+		assertEquals(config.getPermitExpiryDurationInHalfOpenState(), 140);
+		assertEquals(config.getLimitForPeriod(), 150);
+		assertEquals(config.getLimitRefreshPeriod(), 160);
+		assertEquals(config.getMaxRetryAttempts(), 170);
+		assertEquals(config.getRetryWaitDuration(), 180);
+		assertTrue(config.getRetryBackoffMultiplier() == 2.5f);
+		assertEquals(config.getMaxRetryWaitDuration(), 190);
+		assertTrue(config.getRetryBudgetPercentage() == 210f);
+		assertTrue(config.getHedgingPercentile() == 99.5f);
+		assertTrue(config.getHedgingBudgetPercentage() == 230f);
+		assertEquals(config.getTimeoutDuration(), 240);
+		assertTrue(config.getWaitDurationInOpenStateMultiplier() == 3.5f);
+		assertEquals(config.getMaxWaitDurationInOpenState(), 250);
+		assertTrue(config.getWaitDurationInOpenStateJitter() == 27f);
 	}
 
 }
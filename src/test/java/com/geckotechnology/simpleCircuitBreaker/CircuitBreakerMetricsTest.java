@@ -0,0 +1,106 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+public class CircuitBreakerMetricsTest {
+
+	@Test
+	public void testMetrics() {
+		ManualClock clock = new ManualClock();
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setName("metrics");
+		config.setClock(clock);
+		config.setSlidingWindowSize(10);
+		config.setSlidingWindowStripeCount(2);
+		config.setMinimumNumberOfCalls(4);
+		config.setFailureRateThreshold(50);
+		config.setSlowCallDurationThreshold(100);
+		config.setSlowCallRateThreshold(0);
+		config.setWaitDurationInOpenState(5000);
+		config.setPermittedNumberOfCallsInHalfOpenState(2);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		CircuitBreakerMetrics metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getCircuitBreakerName(), "metrics");
+		assertEquals(metrics.getBreakerStateType(), BreakerStateType.CLOSED);
+		assertEquals(metrics.getCallCount(), 0);
+		assertEquals(metrics.getFailureRate(), -1f, 0f);
+		assertEquals(metrics.getTimeInState(), 0);
+		circuitBreaker.callSucceeded(10);
+		circuitBreaker.callSucceeded(200);
+		circuitBreaker.callFailed(10);
+		clock.advance(1500);
+		metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getCallCount(), 3);
+		assertEquals(metrics.getFailureCallCount(), 1);
+		assertEquals(metrics.getSlowCallDurationCount(), 1);
+		assertEquals(metrics.getFailureRate(), 100f / 3f, 0.001f);
+		assertEquals(metrics.getTimeInState(), 1500);
+		//snapshot is not updated by later calls
+		circuitBreaker.callFailed(10);
+		assertEquals(metrics.getCallCount(), 3);
+		metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getBreakerStateType(), BreakerStateType.OPEN);
+		assertEquals(metrics.getTimeInState(), 0);
+		assertEquals(metrics.getNotPermittedCallCount(), 0);
+		assertFalse(circuitBreaker.isClosedForThisCall());
+		assertFalse(circuitBreaker.isClosedForThisCall());
+		clock.advance(100);
+		metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getNotPermittedCallCount(), 2);
+		assertEquals(metrics.getTimeInState(), 100);
+		//moves to HALF_OPEN, permitted calls only
+		clock.advance(5000);
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		assertFalse(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callFailed(10);
+		metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getBreakerStateType(), BreakerStateType.HALF_OPEN);
+		assertEquals(metrics.getCallCount(), 1);
+		assertEquals(metrics.getFailureCallCount(), 1);
+		assertEquals(metrics.getNotPermittedCallCount(), 3);
+	}
+
+	@Test
+	public void testDisabledState() {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setSlidingWindowSize(0);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callFailed(10);
+		CircuitBreakerMetrics metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getBreakerStateType(), BreakerStateType.DISABLED);
+		assertEquals(metrics.getCallCount(), 0);
+		assertEquals(metrics.getNotPermittedCallCount(), 0);
+	}
+
+	/**
+	 * The snapshot is the only allocation
+	 */
+	@Test
+	public void testAllocation() {
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled());
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setSlidingWindowStripeCount(8);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		circuitBreaker.callSucceeded(10);
+		long threadId = Thread.currentThread().getId();
+		long callCount = 0;
+		for(int i = 0; i<10000; i++)
+			callCount += circuitBreaker.getMetrics().getCallCount();
+		long allocatedBytesBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+		for(int i = 0; i<10000; i++)
+			callCount += circuitBreaker.getMetrics().getCallCount();
+		long allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBytesBefore;
+		assertEquals(callCount, 20000);
+		//one object of 13 fields
+		assertTrue(allocatedBytes / 10000 <= 96);
+	}
+}
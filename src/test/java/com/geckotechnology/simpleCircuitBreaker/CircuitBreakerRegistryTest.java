@@ -0,0 +1,139 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+public class CircuitBreakerRegistryTest {
+
+	@Test
+	public void testGetOrCreate() {
+		CircuitBreakerConfig defaultConfig = new CircuitBreakerConfig();
+		defaultConfig.setName("ignored");
+		defaultConfig.setSlidingWindowSize(20);
+		CircuitBreakerRegistry registry = new CircuitBreakerRegistry(defaultConfig);
+		//later changes are ignored
+		defaultConfig.setSlidingWindowSize(30);
+		assertNull(registry.get("A"));
+		CircuitBreaker circuitBreakerA = registry.getOrCreate("A");
+		assertSame(registry.getOrCreate("A"), circuitBreakerA);
+		assertSame(registry.get("A"), circuitBreakerA);
+		assertEquals(circuitBreakerA.getCloneOfCircuitBreakerConfig().getName(), "A");
+		assertEquals(circuitBreakerA.getCloneOfCircuitBreakerConfig().getSlidingWindowSize(), 20);
+		//shared config
+		CircuitBreakerConfig sharedConfig = new CircuitBreakerConfig();
+		sharedConfig.setSlidingWindowSize(0);
+		registry.addConfig("disabled", sharedConfig);
+		CircuitBreaker circuitBreakerB = registry.getOrCreate("B", "disabled");
+		assertEquals(circuitBreakerB.getBreakerState().getBreakerStateType(), BreakerStateType.DISABLED);
+		assertEquals(circuitBreakerB.getCloneOfCircuitBreakerConfig().getName(), "B");
+		//existing breaker is returned whatever the config
+		assertSame(registry.getOrCreate("A", "disabled"), circuitBreakerA);
+		try {
+			registry.getOrCreate("C", "unknown");
+			fail("IllegalArgumentException expected");
+		}
+		catch(IllegalArgumentException e) {
+		}
+		assertEquals(registry.size(), 2);
+		HashSet<CircuitBreaker> circuitBreakers = new HashSet<CircuitBreaker>();
+		for(CircuitBreaker circuitBreaker:registry)
+			circuitBreakers.add(circuitBreaker);
+		assertEquals(circuitBreakers.size(), 2);
+		assertTrue(circuitBreakers.contains(circuitBreakerA));
+		assertTrue(circuitBreakers.contains(circuitBreakerB));
+		assertSame(registry.remove("A"), circuitBreakerA);
+		assertNull(registry.get("A"));
+		assertEquals(registry.size(), 1);
+	}
+
+	@Test
+	public void testFromProperties() throws Exception {
+		Properties props = new Properties();
+		InputStream is = CircuitBreakerRegistryTest.class.getResourceAsStream("/configTest.config");
+		props.load(is);
+		is.close();
+		props.setProperty("host1.ep1.failureRateThreshold", "12");
+		CircuitBreakerConfig defaultConfig = new CircuitBreakerConfig();
+		defaultConfig.setMinimumNumberOfCalls(7);
+		CircuitBreakerRegistry registry = new CircuitBreakerRegistry(defaultConfig);
+		List<CircuitBreaker> circuitBreakers = registry.getOrCreateFromProperties(props, "PREFIX.", "host1.ep1.");
+		assertEquals(circuitBreakers.size(), 2);
+		CircuitBreakerConfig config = circuitBreakers.get(0).getCloneOfCircuitBreakerConfig();
+		assertEquals(config.getName(), "TEST_PREFIX");
+		assertEquals(config.getSlidingWindowSize(), 20);
+		assertEquals(config.getMinimumNumberOfCalls(), 50);
+		assertSame(registry.get("TEST_PREFIX"), circuitBreakers.get(0));
+		//no name property, name comes from the prefix. Missing properties come from the default config
+		config = circuitBreakers.get(1).getCloneOfCircuitBreakerConfig();
+		assertEquals(config.getName(), "host1.ep1");
+		assertTrue(config.getFailureRateThreshold() == 12f);
+		assertEquals(config.getMinimumNumberOfCalls(), 7);
+		//prefixes found from the name properties, existing breaker is kept
+		props.setProperty("host2.ep1.name", "HOST2");
+		circuitBreakers = registry.getOrCreateFromProperties(props);
+		assertEquals(circuitBreakers.size(), 2);
+		assertTrue(circuitBreakers.contains(registry.get("TEST_PREFIX")));
+		assertTrue(circuitBreakers.contains(registry.get("HOST2")));
+		assertEquals(registry.size(), 3);
+	}
+
+	@Test
+	public void testConcurrentGetOrCreate() throws InterruptedException {
+		final CircuitBreakerRegistry registry = new CircuitBreakerRegistry();
+		final int threadCount = 8;
+		final AtomicReferenceArray<CircuitBreaker> results = new AtomicReferenceArray<CircuitBreaker>(threadCount);
+		Thread threads[] = new Thread[threadCount];
+		for(int t = 0; t<threadCount; t++) {
+			final int threadIndex = t;
+			threads[t] = new Thread() {
+				public void run() {
+					results.set(threadIndex, registry.getOrCreate("shared"));
+				}
+			};
+		}
+		for(Thread thread:threads)
+			thread.start();
+		for(Thread thread:threads)
+			thread.join();
+		for(int t = 0; t<threadCount; t++)
+			assertSame(results.get(t), registry.get("shared"));
+		assertEquals(registry.size(), 1);
+	}
+
+	/**
+	 * The estimate must be close to what creating a breaker actually allocates
+	 */
+	@Test
+	public void testEstimatedMemoryFootprint() {
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled());
+		long threadId = Thread.currentThread().getId();
+		for(SlidingWindowType slidingWindowType:SlidingWindowType.values()) {
+			CircuitBreakerConfig config = new CircuitBreakerConfig();
+			config.setSlidingWindowType(slidingWindowType);
+			config.setSlidingWindowSize(3600);
+			config.setSlidingWindowStripeCount(4);
+			new CircuitBreaker(config);
+			long allocatedBytesBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+			CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+			long allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBytesBefore;
+			long estimatedMemoryFootprint = circuitBreaker.getEstimatedMemoryFootprint();
+			System.out.println(slidingWindowType + " allocatedBytes:" + allocatedBytes + ", estimatedMemoryFootprint:" + estimatedMemoryFootprint);
+			assertTrue(Math.abs(allocatedBytes - estimatedMemoryFootprint) < allocatedBytes / 5);
+		}
+		CircuitBreakerRegistry registry = new CircuitBreakerRegistry();
+		registry.getOrCreate("A");
+		registry.getOrCreate("B");
+		assertTrue(registry.getEstimatedMemoryFootprint() > 2 * registry.get("A").getEstimatedMemoryFootprint());
+	}
+}
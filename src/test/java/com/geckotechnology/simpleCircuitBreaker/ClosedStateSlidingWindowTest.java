@@ -111,6 +111,47 @@ public class ClosedStateSlidingWindowTest {
 		assertTrue(TestUtils.validateAggregatedCountStatsMatches(circuitBreaker, 1, 1, 1));
 	}
 	
+	/**
+	 * 5 buckets of 100ms: the window is 500ms
+	 */
+	@Test
+	public void testSubSecondBuckets() {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setSlidingWindowSize(5);
+		config.setSlidingWindowBucketWidth(100);
+		config.setMinimumNumberOfCalls(3);
+		config.setFailureRateThreshold(50);
+		config.setSlowCallRateThreshold(0);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+
+		//FF
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callFailed(10);
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callFailed(10);
+		assertTrue(TestUtils.validateAggregatedCountStatsMatches(circuitBreaker, 2, 2, 0));
+
+		TestUtils.sleep(600);
+
+		//SS, both failures are out of the window
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callSucceeded(10);
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callSucceeded(10);
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.CLOSED);
+		assertTrue(TestUtils.validateAggregatedCountStatsMatches(circuitBreaker, 2, 0, 0));
+
+		//SSF: 33%
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callFailed(10);
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.CLOSED);
+
+		//SSFF: 50%, trip
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callFailed(10);
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.OPEN);
+	}
+
 	@Test
 	public void loadtestLongWait() {
 		loadtest(WAIT_TIME_LONG);
@@ -0,0 +1,84 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class CountBasedSlidingWindowTest {
+
+	@Test
+	public void testRingBuffer() {
+		//40 calls: the ring buffer spans 2 longs
+		CountBasedSlidingWindow slidingWindow = new CountBasedSlidingWindow(40);
+		for(int i = 0; i<40; i++)
+			slidingWindow.addCall(0, i % 2 == 0, i % 4 == 0, 10);
+		assertTrue(validate(slidingWindow, 40, 20, 10));
+		//evict the 10 oldest calls, replaced by slow only calls
+		for(int i = 0; i<10; i++)
+			slidingWindow.addCall(0, false, true, 10);
+		assertTrue(validate(slidingWindow, 40, 15, 17));
+		//replace all calls
+		for(int i = 0; i<40; i++)
+			slidingWindow.addCall(0, true, false, 10);
+		assertTrue(validate(slidingWindow, 40, 40, 0));
+	}
+
+	@Test
+	public void testSize1() {
+		CountBasedSlidingWindow slidingWindow = new CountBasedSlidingWindow(1);
+		assertTrue(validate(slidingWindow, 0, 0, 0));
+		slidingWindow.addCall(0, true, true, 10);
+		assertTrue(validate(slidingWindow, 1, 1, 1));
+		slidingWindow.addCall(0, false, true, 10);
+		assertTrue(validate(slidingWindow, 1, 0, 1));
+		slidingWindow.addCall(0, false, false, 10);
+		assertTrue(validate(slidingWindow, 1, 0, 0));
+	}
+
+	/**
+	 * Test transitions : closed -> open, no time involved
+	 * Event type: call failure
+	 */
+	@Test
+	public void testTransition() {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setSlidingWindowType(SlidingWindowType.COUNT_BASED);
+		config.setSlidingWindowSize(4);
+		config.setFailureRateThreshold(50);
+		config.setSlowCallRateThreshold(0);
+		config.setMinimumNumberOfCalls(3);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		//F S S S S S: the failure is evicted, 0%
+		for(int i = 0; i<6; i++) {
+			assertTrue(circuitBreaker.isClosedForThisCall());
+			if(i == 0)
+				circuitBreaker.callFailed(10);
+			else
+				circuitBreaker.callSucceeded(10);
+			assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.CLOSED);
+		}
+		assertTrue(TestUtils.validateAggregatedCountStatsMatches(circuitBreaker, 4, 0, 0));
+		//S S S F: 25%
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callFailed(10);
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.CLOSED);
+		assertTrue(TestUtils.validateAggregatedCountStatsMatches(circuitBreaker, 4, 1, 0));
+		//S S F F: 50%, trip
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callFailed(10);
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.OPEN);
+		assertFalse(circuitBreaker.isClosedForThisCall());
+	}
+
+	private boolean validate(CountBasedSlidingWindow slidingWindow, int expectedCallCount,
+			int expectedFailureCallCount, int expectedSlowCallDurationCount) {
+		CountStats expectedCountStats = new CountStats();
+		expectedCountStats.callCount = expectedCallCount;
+		expectedCountStats.failureCallCount = expectedFailureCallCount;
+		expectedCountStats.slowCallDurationCount = expectedSlowCallDurationCount;
+		synchronized(slidingWindow) {
+			return TestUtils.isCountStatsEqual(expectedCountStats, slidingWindow.getCountStats()) &&
+					TestUtils.isCountStatsEqual(expectedCountStats, slidingWindow.calculateAggregatedCountStatsForUnitTest());
+		}
+	}
+}
@@ -0,0 +1,274 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+public class ExecuteTest {
+
+	@Test
+	public void testExecute() throws Exception {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setName("execute");
+		config.setMinimumNumberOfCalls(4);
+		config.setSlowCallDurationThreshold(50);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		assertEquals(circuitBreaker.execute(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				return "OK";
+			}
+		}), "OK");
+		//duration is measured
+		circuitBreaker.run(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(60);
+				} catch (InterruptedException e) {
+				}
+			}
+		});
+		CircuitBreakerMetrics metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getCallCount(), 2);
+		assertEquals(metrics.getSlowCallDurationCount(), 1);
+		assertEquals(metrics.getFailureCallCount(), 0);
+		//exceptions are recorded then thrown again
+		for(int i = 0; i<2; i++) {
+			try {
+				circuitBreaker.execute(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						throw new IOException("KO");
+					}
+				});
+				fail("IOException expected");
+			}
+			catch(IOException e) {
+				assertEquals(e.getMessage(), "KO");
+			}
+		}
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.OPEN);
+		CallNotPermittedException callNotPermittedException = null;
+		try {
+			circuitBreaker.run(new Runnable() {
+				@Override
+				public void run() {
+					fail("call not permitted");
+				}
+			});
+			fail("CallNotPermittedException expected");
+		}
+		catch(CallNotPermittedException e) {
+			callNotPermittedException = e;
+		}
+		assertEquals(callNotPermittedException.getCircuitBreakerName(), "execute");
+		assertEquals(callNotPermittedException.getStackTrace().length, 0);
+		//same instance each time
+		try {
+			circuitBreaker.execute(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					return "OK";
+				}
+			});
+			fail("CallNotPermittedException expected");
+		}
+		catch(CallNotPermittedException e) {
+			assertSame(e, callNotPermittedException);
+		}
+		assertEquals(circuitBreaker.getMetrics().getNotPermittedCallCount(), 2);
+	}
+
+	@Test
+	public void testExecuteSupplier() {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setMinimumNumberOfCalls(2);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		assertEquals(circuitBreaker.executeSupplier(() -> "OK"), "OK");
+		try {
+			circuitBreaker.executeSupplier(() -> {
+				throw new IllegalStateException();
+			});
+			fail("IllegalStateException expected");
+		}
+		catch(IllegalStateException e) {
+		}
+		try {
+			circuitBreaker.executeSupplier(() -> "OK");
+			fail("CallNotPermittedException expected");
+		}
+		catch(CallNotPermittedException e) {
+		}
+	}
+
+	@Test
+	public void testExecuteAsync() throws Exception {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setMinimumNumberOfCalls(3);
+		config.setSlowCallDurationThreshold(50);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		//outcome is recorded when the future completes, on the completing thread
+		CompletableFuture<String> future = new CompletableFuture<String>();
+		CompletionStage<String> stage = circuitBreaker.executeAsync(() -> future);
+		assertEquals(circuitBreaker.getMetrics().getCallCount(), 0);
+		Thread thread = new Thread() {
+			public void run() {
+				try {
+					Thread.sleep(60);
+				} catch (InterruptedException e) {
+				}
+				future.complete("OK");
+			}
+		};
+		thread.start();
+		assertEquals(stage.toCompletableFuture().get(), "OK");
+		CircuitBreakerMetrics metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getCallCount(), 1);
+		assertEquals(metrics.getSlowCallDurationCount(), 1);
+		//exceptional completion
+		stage = circuitBreaker.executeAsync(() -> CompletableFuture.supplyAsync(() -> {
+			throw new IllegalStateException("KO");
+		}));
+		try {
+			stage.toCompletableFuture().get();
+			fail("ExecutionException expected");
+		}
+		catch(ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		//supplier throwing
+		stage = circuitBreaker.executeAsync(() -> {
+			throw new IllegalArgumentException();
+		});
+		assertTrue(stage.toCompletableFuture().isCompletedExceptionally());
+		metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getBreakerStateType(), BreakerStateType.OPEN);
+		//fails fast
+		stage = circuitBreaker.executeAsync(() -> {
+			fail("call not permitted");
+			return null;
+		});
+		try {
+			stage.toCompletableFuture().get();
+			fail("ExecutionException expected");
+		}
+		catch(ExecutionException e) {
+			assertTrue(e.getCause() instanceof CallNotPermittedException);
+		}
+	}
+
+	/**
+	 * A null stage is a failure, and the bulkhead permit is given back
+	 */
+	@Test
+	public void testExecuteAsyncNullStage() throws Exception {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setMaxConcurrentCalls(1);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		CompletionStage<String> stage = circuitBreaker.executeAsync(() -> null);
+		try {
+			stage.toCompletableFuture().get();
+			fail("ExecutionException expected");
+		}
+		catch(ExecutionException e) {
+			assertTrue(e.getCause() instanceof NullPointerException);
+		}
+		CircuitBreakerMetrics metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getCallCount(), 1);
+		assertEquals(metrics.getFailureCallCount(), 1);
+		assertEquals(metrics.getConcurrentCallCount(), 0);
+		assertEquals(circuitBreaker.executeAsync(() -> CompletableFuture.completedFuture("OK")).toCompletableFuture().get(), "OK");
+	}
+
+	@Test
+	public void testExceptionClassifier() {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setMinimumNumberOfCalls(1);
+		config.setFailureRateThreshold(20);
+		config.setExceptionClassifier(new BreakerExceptionClassifier() {
+			@Override
+			public boolean isFailure(Throwable throwable) {
+				return !(throwable instanceof IllegalArgumentException);
+			}
+		});
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		for(int i = 0; i<3; i++) {
+			try {
+				circuitBreaker.run(new Runnable() {
+					@Override
+					public void run() {
+						throw new IllegalArgumentException();
+					}
+				});
+				fail("IllegalArgumentException expected");
+			}
+			catch(IllegalArgumentException e) {
+			}
+		}
+		CircuitBreakerMetrics metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getBreakerStateType(), BreakerStateType.CLOSED);
+		assertEquals(metrics.getCallCount(), 3);
+		assertEquals(metrics.getFailureCallCount(), 0);
+		try {
+			circuitBreaker.run(new Runnable() {
+				@Override
+				public void run() {
+					throw new IllegalStateException();
+				}
+			});
+			fail("IllegalStateException expected");
+		}
+		catch(IllegalStateException e) {
+		}
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.OPEN);
+	}
+
+	/**
+	 * Rejection must not allocate
+	 */
+	@Test
+	public void testNotPermittedAllocation() {
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled());
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setSlidingWindowSize(-1);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		Runnable runnable = new Runnable() {
+			@Override
+			public void run() {
+			}
+		};
+		long threadId = Thread.currentThread().getId();
+		int notPermittedCount = 0;
+		for(int i = 0; i<20000; i++) {
+			try {
+				circuitBreaker.run(runnable);
+			}
+			catch(CallNotPermittedException e) {
+				notPermittedCount++;
+			}
+		}
+		long allocatedBytesBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+		for(int i = 0; i<20000; i++) {
+			try {
+				circuitBreaker.run(runnable);
+			}
+			catch(CallNotPermittedException e) {
+				notPermittedCount++;
+			}
+		}
+		long allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBytesBefore;
+		assertEquals(notPermittedCount, 40000);
+		assertTrue(allocatedBytes < 20000);
+	}
+}
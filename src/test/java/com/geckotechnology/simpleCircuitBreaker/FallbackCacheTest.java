@@ -0,0 +1,96 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+
+public class FallbackCacheTest {
+
+	@Test
+	public void testLruAndTimeToLive() {
+		ManualClock clock = new ManualClock();
+		FallbackCache<String, String> cache = new FallbackCache<String, String>(3, 1000, 0, null, clock);
+		cache.put("a", "A");
+		cache.put("b", "B");
+		cache.put("c", "C");
+		//a becomes the most recently used
+		assertEquals(cache.get("a"), "A");
+		cache.put("d", "D");
+		assertEquals(cache.size(), 3);
+		assertNull(cache.get("b"));
+		assertEquals(cache.get("c"), "C");
+		clock.advance(500);
+		cache.put("c", "C2");
+		clock.advance(500);
+		assertNull(cache.get("a"));
+		assertNull(cache.get("d"));
+		assertEquals(cache.get("c"), "C2");
+		assertEquals(cache.size(), 1);
+		assertEquals(cache.getHitCount(), 3);
+		assertEquals(cache.getMissCount(), 3);
+	}
+
+	@Test
+	public void testMaxWeight() {
+		FallbackCache<String, String> cache = new FallbackCache<String, String>(100, 1000, 10, String::length,
+				MonotonicBreakerClock.getInstance());
+		cache.put("a", "1234");
+		cache.put("b", "1234");
+		assertEquals(cache.getTotalWeight(), 8);
+		cache.put("c", "1234");
+		assertEquals(cache.getTotalWeight(), 8);
+		assertNull(cache.get("a"));
+		//heavier than maxWeight, not stored and previous value removed
+		cache.put("b", "12345678901");
+		assertNull(cache.get("b"));
+		assertEquals(cache.getTotalWeight(), 4);
+		cache.remove("c");
+		assertEquals(cache.getTotalWeight(), 0);
+		assertEquals(cache.size(), 0);
+		try {
+			new FallbackCache<String, String>(100, 1000, 10, null, MonotonicBreakerClock.getInstance());
+			fail("IllegalArgumentException expected");
+		}
+		catch(IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testExecuteWithFallback() throws Exception {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setMinimumNumberOfCalls(2);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		FallbackCache<String, String> cache = new FallbackCache<String, String>(10, 60000);
+		assertEquals(circuitBreaker.executeWithFallback("a", new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				return "A";
+			}
+		}, cache), "A");
+		Callable<String> failingCallable = new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				throw new IOException();
+			}
+		};
+		//failures are not replaced by the cached result
+		try {
+			circuitBreaker.executeWithFallback("a", failingCallable, cache);
+			fail("IOException expected");
+		}
+		catch(IOException e) {
+		}
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.OPEN);
+		assertEquals(circuitBreaker.executeWithFallback("a", failingCallable, cache), "A");
+		try {
+			circuitBreaker.executeWithFallback("b", failingCallable, cache);
+			fail("CallNotPermittedException expected");
+		}
+		catch(CallNotPermittedException e) {
+		}
+		assertEquals(circuitBreaker.getMetrics().getNotPermittedCallCount(), 2);
+	}
+}
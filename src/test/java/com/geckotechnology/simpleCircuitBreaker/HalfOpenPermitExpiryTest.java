@@ -0,0 +1,138 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class HalfOpenPermitExpiryTest {
+
+	private static CircuitBreaker createHalfOpenCircuitBreaker(ManualClock clock, long permitExpiryDuration) {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setClock(clock);
+		config.setPermittedNumberOfCallsInHalfOpenState(3);
+		config.setMaxDurationOpenInHalfOpenState(0);
+		config.setPermitExpiryDurationInHalfOpenState(permitExpiryDuration);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		circuitBreaker.moveToHalfOpenState(circuitBreaker.getBreakerState(), StateChangeReason.WAIT_DURATION_IN_OPEN_STATE_OVER);
+		return circuitBreaker;
+	}
+
+	@Test
+	public void testLeakedPermitsReissued() {
+		ManualClock clock = new ManualClock();
+		CircuitBreaker circuitBreaker = createHalfOpenCircuitBreaker(clock, 1000);
+		for(int i = 0; i<3; i++)
+			assertTrue(circuitBreaker.isClosedForThisCall());
+		assertFalse(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callSucceeded(10);
+		clock.advance(999);
+		assertFalse(circuitBreaker.isClosedForThisCall());
+		//the 2 permits without outcome expire, the reported one does not
+		clock.advance(1);
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		assertFalse(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callSucceeded(10);
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.HALF_OPEN);
+		circuitBreaker.callSucceeded(10);
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.CLOSED);
+		//permits are issued again after the next HALF_OPEN transition
+		circuitBreaker.moveToHalfOpenState(circuitBreaker.getBreakerState(), StateChangeReason.WAIT_DURATION_IN_OPEN_STATE_OVER);
+		for(int i = 0; i<3; i++)
+			assertTrue(circuitBreaker.isClosedForThisCall());
+		assertFalse(circuitBreaker.isClosedForThisCall());
+	}
+
+	/**
+	 * The outcome is reported while the permit is being issued, between the permit count and its expiry.
+	 * The permit must not be armed afterwards
+	 */
+	@Test
+	public void testOutcomeReportedWhileIssuing() {
+		final CircuitBreaker circuitBreaker[] = new CircuitBreaker[1];
+		final boolean reportOnNextRead[] = new boolean[1];
+		ManualClock clock = new ManualClock() {
+			@Override
+			public long currentTimeMillis() {
+				if(reportOnNextRead[0]) {
+					reportOnNextRead[0] = false;
+					circuitBreaker[0].callSucceeded(10);
+				}
+				return super.currentTimeMillis();
+			}
+		};
+		circuitBreaker[0] = createHalfOpenCircuitBreaker(clock, 1000);
+		//the expiry of the first permit is the next clock read
+		reportOnNextRead[0] = true;
+		assertTrue(circuitBreaker[0].isClosedForThisCall());
+		assertFalse(reportOnNextRead[0]);
+		assertTrue(circuitBreaker[0].isClosedForThisCall());
+		assertTrue(circuitBreaker[0].isClosedForThisCall());
+		assertFalse(circuitBreaker[0].isClosedForThisCall());
+		//only the 2 permits without outcome expire
+		clock.advance(1000);
+		assertTrue(circuitBreaker[0].isClosedForThisCall());
+		assertTrue(circuitBreaker[0].isClosedForThisCall());
+		assertFalse(circuitBreaker[0].isClosedForThisCall());
+	}
+
+	@Test
+	public void testNoExpiry() {
+		ManualClock clock = new ManualClock();
+		CircuitBreaker circuitBreaker = createHalfOpenCircuitBreaker(clock, 0);
+		for(int i = 0; i<3; i++)
+			assertTrue(circuitBreaker.isClosedForThisCall());
+		clock.advance(1000000);
+		assertFalse(circuitBreaker.isClosedForThisCall());
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.HALF_OPEN);
+	}
+
+	@Test
+	public void testConcurrentCallers() throws InterruptedException {
+		final ManualClock clock = new ManualClock();
+		final CircuitBreaker circuitBreaker = createHalfOpenCircuitBreaker(clock, 1000);
+		final AtomicInteger permittedCallCount = new AtomicInteger();
+		final int threadCount = 8;
+		final CountDownLatch startLatch = new CountDownLatch(1);
+		final CountDownLatch doneLatch = new CountDownLatch(threadCount);
+		for(int t = 0; t<threadCount; t++) {
+			new Thread() {
+				public void run() {
+					try {
+						startLatch.await();
+					} catch (InterruptedException e) {
+					}
+					for(int i = 0; i<1000; i++) {
+						if(circuitBreaker.isClosedForThisCall())
+							permittedCallCount.incrementAndGet();
+					}
+					doneLatch.countDown();
+				}
+			}.start();
+		}
+		startLatch.countDown();
+		assertTrue(doneLatch.await(10, TimeUnit.SECONDS));
+		assertEquals(permittedCallCount.get(), 3);
+		//each expired permit is reissued once
+		clock.advance(1000);
+		permittedCallCount.set(0);
+		final CountDownLatch doneLatch2 = new CountDownLatch(threadCount);
+		for(int t = 0; t<threadCount; t++) {
+			new Thread() {
+				public void run() {
+					for(int i = 0; i<1000; i++) {
+						if(circuitBreaker.isClosedForThisCall())
+							permittedCallCount.incrementAndGet();
+					}
+					doneLatch2.countDown();
+				}
+			}.start();
+		}
+		assertTrue(doneLatch2.await(10, TimeUnit.SECONDS));
+		assertEquals(permittedCallCount.get(), 3);
+	}
+}
@@ -0,0 +1,213 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class HedgingTest {
+
+	private final ExecutorService executorService = Executors.newCachedThreadPool();
+
+	@After
+	public void tearDown() {
+		executorService.shutdownNow();
+	}
+
+	private static CircuitBreaker createCircuitBreaker(float hedgingBudgetPercentage) {
+		return createCircuitBreaker(hedgingBudgetPercentage, 5);
+	}
+
+	private static CircuitBreakerConfig createConfig(float hedgingBudgetPercentage) {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setLatencyHistogramEnabled(true);
+		config.setHedgingBudgetPercentage(hedgingBudgetPercentage);
+		config.setFailureRateThreshold(0);
+		config.setSlowCallRateThreshold(0);
+		return config;
+	}
+
+	private static CircuitBreaker createCircuitBreaker(float hedgingBudgetPercentage, long callDuration) {
+		return createCircuitBreaker(createConfig(hedgingBudgetPercentage), callDuration);
+	}
+
+	private static CircuitBreaker createCircuitBreaker(CircuitBreakerConfig config, long callDuration) {
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		//p95 of callDuration
+		for(int i = 0; i<20; i++) {
+			assertTrue(circuitBreaker.isClosedForThisCall());
+			circuitBreaker.callSucceeded(callDuration);
+		}
+		return circuitBreaker;
+	}
+
+	@Test
+	public void testHedgedCallWins() throws Exception {
+		CircuitBreaker circuitBreaker = createCircuitBreaker(100);
+		final AtomicInteger attemptCount = new AtomicInteger();
+		final CountDownLatch interruptedLatch = new CountDownLatch(1);
+		long startTime = System.currentTimeMillis();
+		Integer result = circuitBreaker.executeHedged(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				int attempt = attemptCount.incrementAndGet();
+				if(attempt == 1) {
+					try {
+						Thread.sleep(5000);
+					}
+					catch(InterruptedException e) {
+						interruptedLatch.countDown();
+						throw e;
+					}
+				}
+				return attempt;
+			}
+		}, executorService);
+		assertTrue(System.currentTimeMillis() - startTime < 2000);
+		assertEquals(result.intValue(), 2);
+		//loser cancelled and its failure not recorded
+		assertTrue(interruptedLatch.await(5, TimeUnit.SECONDS));
+		CircuitBreakerMetrics metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getCallCount(), 21);
+		assertEquals(metrics.getFailureCallCount(), 0);
+	}
+
+	@Test
+	public void testHedgingBudget() throws Exception {
+		//10% of about 20 calls
+		CircuitBreaker circuitBreaker = createCircuitBreaker(10);
+		final AtomicInteger attemptCount = new AtomicInteger();
+		Callable<Integer> callable = new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				attemptCount.incrementAndGet();
+				Thread.sleep(50);
+				return 0;
+			}
+		};
+		for(int i = 0; i<3; i++)
+			circuitBreaker.executeHedged(callable, executorService);
+		assertEquals(attemptCount.get(), 5);
+		assertEquals(circuitBreaker.getMetrics().getCallCount(), 23);
+	}
+
+	@Test
+	public void testNoHedging() throws Exception {
+		CircuitBreaker circuitBreaker = createCircuitBreaker(0);
+		final AtomicInteger attemptCount = new AtomicInteger();
+		Callable<Integer> callable = new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				attemptCount.incrementAndGet();
+				Thread.sleep(50);
+				return 0;
+			}
+		};
+		circuitBreaker.executeHedged(callable, executorService);
+		assertEquals(attemptCount.get(), 1);
+		//sub-millisecond calls
+		circuitBreaker = createCircuitBreaker(100, 0);
+		circuitBreaker.executeHedged(callable, executorService);
+		assertEquals(attemptCount.get(), 2);
+		//OPEN state
+		circuitBreaker = createCircuitBreaker(100);
+		circuitBreaker.moveToOpenState(circuitBreaker.getBreakerState(), StateChangeReason.INITIAL_STATE);
+		try {
+			circuitBreaker.executeHedged(callable, executorService);
+			fail("CallNotPermittedException expected");
+		}
+		catch(CallNotPermittedException e) {
+		}
+		assertEquals(attemptCount.get(), 2);
+	}
+
+	private static final Callable<Integer> SLOW_CALLABLE = new Callable<Integer>() {
+		@Override
+		public Integer call() throws Exception {
+			Thread.sleep(50);
+			return 0;
+		}
+	};
+
+	/**
+	 * Neither a rejected submission nor an interrupted caller tells anything about the backend
+	 */
+	@Test
+	public void testRejectedOrInterruptedNotRecorded() throws Exception {
+		CircuitBreakerConfig config = createConfig(100);
+		config.setMaxConcurrentCalls(1);
+		CircuitBreaker circuitBreaker = createCircuitBreaker(config, 5);
+		ExecutorService shutdownExecutorService = Executors.newSingleThreadExecutor();
+		shutdownExecutorService.shutdown();
+		try {
+			circuitBreaker.executeHedged(SLOW_CALLABLE, shutdownExecutorService);
+			fail("RejectedExecutionException expected");
+		}
+		catch(RejectedExecutionException e) {
+		}
+		CircuitBreakerMetrics metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getCallCount(), 20);
+		assertEquals(metrics.getFailureCallCount(), 0);
+		assertEquals(metrics.getConcurrentCallCount(), 0);
+		Thread.currentThread().interrupt();
+		try {
+			circuitBreaker.executeHedged(SLOW_CALLABLE, executorService);
+			fail("InterruptedException expected");
+		}
+		catch(InterruptedException e) {
+		}
+		metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getCallCount(), 20);
+		assertEquals(metrics.getFailureCallCount(), 0);
+		assertEquals(metrics.getConcurrentCallCount(), 0);
+		//a HALF_OPEN permit is given back
+		config.setPermittedNumberOfCallsInHalfOpenState(1);
+		circuitBreaker = createCircuitBreaker(config, 5);
+		circuitBreaker.moveToHalfOpenState(circuitBreaker.getBreakerState(), StateChangeReason.WAIT_DURATION_IN_OPEN_STATE_OVER);
+		try {
+			circuitBreaker.executeHedged(SLOW_CALLABLE, shutdownExecutorService);
+			fail("RejectedExecutionException expected");
+		}
+		catch(RejectedExecutionException e) {
+		}
+		assertTrue(circuitBreaker.isClosedForThisCall());
+	}
+
+	/**
+	 * The hedged call needs its own bulkhead permit
+	 */
+	@Test
+	public void testHedgeTakesBulkheadPermit() throws Exception {
+		CircuitBreakerConfig config = createConfig(100);
+		config.setMaxConcurrentCalls(1);
+		CircuitBreaker circuitBreaker = createCircuitBreaker(config, 5);
+		final AtomicInteger attemptCount = new AtomicInteger();
+		Callable<Integer> callable = new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				attemptCount.incrementAndGet();
+				Thread.sleep(50);
+				return 0;
+			}
+		};
+		circuitBreaker.executeHedged(callable, executorService);
+		assertEquals(attemptCount.get(), 1);
+		CircuitBreakerMetrics metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getConcurrentCallCount(), 0);
+		assertEquals(metrics.getBulkheadRejectedCallCount(), 0);
+		//room for the hedged call, whose permit is released afterwards
+		config.setMaxConcurrentCalls(2);
+		circuitBreaker = createCircuitBreaker(config, 5);
+		circuitBreaker.executeHedged(callable, executorService);
+		assertEquals(attemptCount.get(), 3);
+		assertEquals(circuitBreaker.getMetrics().getConcurrentCallCount(), 0);
+	}
+}
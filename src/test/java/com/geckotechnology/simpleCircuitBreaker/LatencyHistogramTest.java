@@ -0,0 +1,95 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void testSlots() {
+		for(int i = 0; i<8; i++)
+			assertEquals(LatencyHistogram.getSlot(i), i);
+		assertEquals(LatencyHistogram.getSlot(-5), 0);
+		assertEquals(LatencyHistogram.getSlot(8), 8);
+		assertEquals(LatencyHistogram.getSlot(15), 15);
+		assertEquals(LatencyHistogram.getSlot(16), 16);
+		assertEquals(LatencyHistogram.getSlot(17), 16);
+		assertEquals(LatencyHistogram.getSlot(18), 17);
+		assertEquals(LatencyHistogram.getHighestCallDuration(16), 17);
+		assertEquals(LatencyHistogram.getSlot(Long.MAX_VALUE), LatencyHistogram.SLOT_COUNT - 1);
+		//longer durations are clamped to the highest trackable one
+		assertEquals(LatencyHistogram.getSlot(LatencyHistogram.MAX_TRACKABLE_CALL_DURATION), LatencyHistogram.SLOT_COUNT - 1);
+		assertEquals(LatencyHistogram.getSlot(LatencyHistogram.MAX_TRACKABLE_CALL_DURATION + 1), LatencyHistogram.SLOT_COUNT - 1);
+		assertEquals(LatencyHistogram.getHighestCallDuration(LatencyHistogram.SLOT_COUNT - 1), LatencyHistogram.MAX_TRACKABLE_CALL_DURATION);
+		//slots are ordered, never under-estimate and are at most 12.5% wide
+		int previousSlot = 0;
+		for(long callDuration = 0; callDuration<(1L << 20); callDuration++) {
+			int slot = LatencyHistogram.getSlot(callDuration);
+			assertTrue(slot >= previousSlot);
+			previousSlot = slot;
+			long highestCallDuration = LatencyHistogram.getHighestCallDuration(slot);
+			assertTrue(highestCallDuration >= callDuration);
+			assertTrue(highestCallDuration - callDuration <= callDuration / 8);
+		}
+	}
+
+	@Test
+	public void testPercentile() {
+		long histogram[] = new long[LatencyHistogram.SLOT_COUNT];
+		assertEquals(LatencyHistogram.getCallDurationAtPercentile(histogram, 50), -1);
+		for(int i = 1; i<=100; i++)
+			histogram[LatencyHistogram.getSlot(i)]++;
+		assertEquals(LatencyHistogram.getCallDurationAtPercentile(histogram, 0), 1);
+		assertEquals(LatencyHistogram.getCallDurationAtPercentile(histogram, 5), 5);
+		assertEquals(LatencyHistogram.getCallDurationAtPercentile(histogram, 50), 51);
+		assertEquals(LatencyHistogram.getCallDurationAtPercentile(histogram, 100), 103);
+	}
+
+	@Test
+	public void testCircuitBreakerPercentile() {
+		ManualClock clock = new ManualClock();
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setClock(clock);
+		config.setSlidingWindowSize(10);
+		config.setSlidingWindowStripeCount(4);
+		config.setFailureRateThreshold(0);
+		config.setSlowCallRateThreshold(0);
+		config.setLatencyHistogramEnabled(true);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		assertEquals(circuitBreaker.getCallDurationPercentile(99), -1);
+		for(int i = 0; i<99; i++)
+			circuitBreaker.callSucceeded(10);
+		clock.advance(5000);
+		circuitBreaker.callFailed(1000);
+		assertEquals(circuitBreaker.getCallDurationPercentile(50), 10);
+		assertEquals(circuitBreaker.getCallDurationPercentile(99), 10);
+		assertEquals(circuitBreaker.getCallDurationPercentile(99.9), 1023);
+		//first calls are out of the window
+		clock.advance(6000);
+		assertEquals(circuitBreaker.getCallDurationPercentile(50), 1023);
+		clock.advance(5000);
+		assertEquals(circuitBreaker.getCallDurationPercentile(50), -1);
+		try {
+			circuitBreaker.getCallDurationPercentile(101);
+			fail("IllegalArgumentException expected");
+		}
+		catch(IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testNotAvailable() {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setFailureRateThreshold(0);
+		config.setSlowCallRateThreshold(0);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		circuitBreaker.callSucceeded(10);
+		assertEquals(circuitBreaker.getCallDurationPercentile(50), -1);
+		config.setLatencyHistogramEnabled(true);
+		config.setSlidingWindowType(SlidingWindowType.COUNT_BASED);
+		circuitBreaker = new CircuitBreaker(config);
+		circuitBreaker.callSucceeded(10);
+		assertEquals(circuitBreaker.getCallDurationPercentile(50), -1);
+	}
+}
@@ -0,0 +1,17 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+/**
+ * Clock moved by the test only
+ */
+class ManualClock implements BreakerClock {
+	private volatile long currentTimeMillis = 1000000;
+
+	@Override
+	public long currentTimeMillis() {
+		return currentTimeMillis;
+	}
+
+	void advance(long duration) {
+		currentTimeMillis += duration;
+	}
+}
@@ -0,0 +1,112 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class OpenStateBackoffTest {
+
+	private static CircuitBreakerConfig createConfig(ManualClock clock) {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setClock(clock);
+		config.setMinimumNumberOfCalls(1);
+		config.setPermittedNumberOfCallsInHalfOpenState(1);
+		config.setWaitDurationInOpenState(1000);
+		config.setWaitDurationInOpenStateMultiplier(2);
+		config.setMaxWaitDurationInOpenState(5000);
+		return config;
+	}
+
+	/**
+	 * Checks the breaker stays OPEN for waitDuration, then lets the probe call through
+	 */
+	private static void assertWaitDuration(CircuitBreaker circuitBreaker, ManualClock clock, long waitDuration) {
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.OPEN);
+		clock.advance(waitDuration - 1);
+		assertFalse(circuitBreaker.isClosedForThisCall());
+		clock.advance(1);
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.HALF_OPEN);
+	}
+
+	@Test
+	public void testBackoff() {
+		ManualClock clock = new ManualClock();
+		CircuitBreaker circuitBreaker = new CircuitBreaker(createConfig(clock));
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callFailed(10);
+		assertWaitDuration(circuitBreaker, clock, 1000);
+		circuitBreaker.callFailed(10);
+		assertWaitDuration(circuitBreaker, clock, 2000);
+		circuitBreaker.callFailed(10);
+		assertWaitDuration(circuitBreaker, clock, 4000);
+		circuitBreaker.callFailed(10);
+		//maxWaitDurationInOpenState
+		assertWaitDuration(circuitBreaker, clock, 5000);
+		circuitBreaker.callFailed(10);
+		assertWaitDuration(circuitBreaker, clock, 5000);
+		//reset once CLOSED
+		circuitBreaker.callSucceeded(10);
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.CLOSED);
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callFailed(10);
+		assertWaitDuration(circuitBreaker, clock, 1000);
+	}
+
+	/**
+	 * Leaving HALF_OPEN state because maxDurationOpenInHalfOpenState is over does not reset the backoff
+	 */
+	@Test
+	public void testBackoffKeptAfterMaxDurationInHalfOpenState() {
+		ManualClock clock = new ManualClock();
+		CircuitBreakerConfig config = createConfig(clock);
+		config.setMaxDurationOpenInHalfOpenState(500);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callFailed(10);
+		assertWaitDuration(circuitBreaker, clock, 1000);
+		//the probe call never reports
+		assertFalse(circuitBreaker.isClosedForThisCall());
+		clock.advance(500);
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.CLOSED);
+		circuitBreaker.callFailed(10);
+		assertWaitDuration(circuitBreaker, clock, 2000);
+		circuitBreaker.callFailed(10);
+		assertWaitDuration(circuitBreaker, clock, 4000);
+	}
+
+	@Test
+	public void testNoBackoffByDefault() {
+		ManualClock clock = new ManualClock();
+		CircuitBreakerConfig config = createConfig(clock);
+		config.setWaitDurationInOpenStateMultiplier(1);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callFailed(10);
+		for(int i = 0; i<3; i++) {
+			assertWaitDuration(circuitBreaker, clock, 1000);
+			circuitBreaker.callFailed(10);
+		}
+	}
+
+	@Test
+	public void testJitter() {
+		ManualClock clock = new ManualClock();
+		CircuitBreakerConfig config = createConfig(clock);
+		config.setWaitDurationInOpenStateJitter(50);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callFailed(10);
+		BreakerOpenState openState = (BreakerOpenState)circuitBreaker.getBreakerState();
+		long minWaitDuration = Long.MAX_VALUE;
+		long maxWaitDuration = 0;
+		for(int i = 0; i<1000; i++) {
+			long waitDuration = openState.getWaitDuration();
+			minWaitDuration = Math.min(minWaitDuration, waitDuration);
+			maxWaitDuration = Math.max(maxWaitDuration, waitDuration);
+		}
+		assertTrue(minWaitDuration >= 500 && minWaitDuration < 600);
+		assertTrue(maxWaitDuration <= 1000 && maxWaitDuration > 900);
+	}
+}
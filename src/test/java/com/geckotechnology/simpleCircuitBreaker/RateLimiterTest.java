@@ -0,0 +1,101 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class RateLimiterTest {
+
+	@Test
+	public void testFixedWindow() {
+		ManualClock clock = new ManualClock();
+		RateLimiter rateLimiter = new RateLimiter(3, 100, clock);
+		for(int i = 0; i<3; i++)
+			assertTrue(rateLimiter.tryAcquire());
+		assertFalse(rateLimiter.tryAcquire());
+		clock.advance(99);
+		assertFalse(rateLimiter.tryAcquire());
+		clock.advance(1);
+		for(int i = 0; i<3; i++)
+			assertTrue(rateLimiter.tryAcquire());
+		assertFalse(rateLimiter.tryAcquire());
+		//windows without call
+		clock.advance(10000);
+		assertTrue(rateLimiter.tryAcquire());
+		assertEquals(rateLimiter.getRejectedCallCount(), 3);
+	}
+
+	/**
+	 * A thread which read the clock before another one installed the next window counts in the installed window
+	 */
+	@Test
+	public void testStaleClockRead() {
+		ManualClock clock = new ManualClock();
+		RateLimiter rateLimiter = new RateLimiter(2, 100, clock);
+		assertTrue(rateLimiter.tryAcquire());
+		clock.advance(100);
+		assertTrue(rateLimiter.tryAcquire());
+		clock.advance(-100);
+		assertTrue(rateLimiter.tryAcquire());
+		assertFalse(rateLimiter.tryAcquire());
+		clock.advance(100);
+		assertFalse(rateLimiter.tryAcquire());
+		clock.advance(100);
+		assertTrue(rateLimiter.tryAcquire());
+	}
+
+	@Test
+	public void testCircuitBreaker() {
+		ManualClock clock = new ManualClock();
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setClock(clock);
+		config.setLimitForPeriod(2);
+		config.setLimitRefreshPeriod(1000);
+		config.setMinimumNumberOfCalls(1);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callSucceeded(10);
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callSucceeded(10);
+		assertFalse(circuitBreaker.isClosedForThisCall());
+		CircuitBreakerMetrics metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getRateLimiterRejectedCallCount(), 1);
+		assertEquals(metrics.getNotPermittedCallCount(), 1);
+		//calls rejected by the breaker keep their permit
+		clock.advance(1000);
+		circuitBreaker.moveToForcedOpenState(circuitBreaker.getBreakerState(), StateChangeReason.INITIAL_STATE);
+		assertFalse(circuitBreaker.isClosedForThisCall());
+		assertFalse(circuitBreaker.isClosedForThisCall());
+		assertFalse(circuitBreaker.isClosedForThisCall());
+		metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getRateLimiterRejectedCallCount(), 2);
+		assertEquals(metrics.getNotPermittedCallCount(), 4);
+	}
+
+	@Test
+	public void testMultiThreaded() throws InterruptedException {
+		ManualClock clock = new ManualClock();
+		final RateLimiter rateLimiter = new RateLimiter(1000, 1000, clock);
+		final AtomicInteger permittedCallCount = new AtomicInteger();
+		final int threadCount = 8;
+		final CountDownLatch doneLatch = new CountDownLatch(threadCount);
+		for(int t = 0; t<threadCount; t++) {
+			new Thread() {
+				public void run() {
+					for(int i = 0; i<10000; i++) {
+						if(rateLimiter.tryAcquire())
+							permittedCallCount.incrementAndGet();
+					}
+					doneLatch.countDown();
+				}
+			}.start();
+		}
+		assertTrue(doneLatch.await(10, TimeUnit.SECONDS));
+		assertEquals(permittedCallCount.get(), 1000);
+		assertEquals(rateLimiter.getRejectedCallCount(), threadCount * 10000 - 1000);
+	}
+}
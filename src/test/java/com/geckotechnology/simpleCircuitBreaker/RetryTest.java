@@ -0,0 +1,267 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class RetryTest {
+
+	/**
+	 * Fails failureCount times, then returns the number of attempts
+	 */
+	private static class FailingCallable implements Callable<Integer> {
+		private final AtomicInteger attemptCount = new AtomicInteger();
+		private final int failureCount;
+
+		FailingCallable(int failureCount) {
+			this.failureCount = failureCount;
+		}
+
+		@Override
+		public Integer call() throws Exception {
+			int attempt = attemptCount.incrementAndGet();
+			if(attempt <= failureCount)
+				throw new IOException("attempt " + attempt);
+			return attempt;
+		}
+	}
+
+	private static CircuitBreakerConfig createConfig() {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setMaxRetryAttempts(3);
+		config.setRetryWaitDuration(0);
+		config.setRetryBudgetPercentage(0);
+		config.setFailureRateThreshold(0);
+		config.setSlowCallRateThreshold(0);
+		return config;
+	}
+
+	@Test
+	public void testRetryUntilSuccess() throws Exception {
+		CircuitBreaker circuitBreaker = new CircuitBreaker(createConfig());
+		assertEquals(circuitBreaker.executeWithRetry(new FailingCallable(2)).intValue(), 3);
+		CircuitBreakerMetrics metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getCallCount(), 3);
+		assertEquals(metrics.getFailureCallCount(), 2);
+	}
+
+	@Test
+	public void testMaxRetryAttempts() throws Exception {
+		CircuitBreaker circuitBreaker = new CircuitBreaker(createConfig());
+		FailingCallable callable = new FailingCallable(10);
+		try {
+			circuitBreaker.executeWithRetry(callable);
+			fail("IOException expected");
+		}
+		catch(IOException e) {
+			assertEquals(e.getMessage(), "attempt 4");
+		}
+		assertEquals(callable.attemptCount.get(), 4);
+		//no retry config, same as execute()
+		callable = new FailingCallable(10);
+		try {
+			new CircuitBreaker(new CircuitBreakerConfig()).executeWithRetry(callable);
+			fail("IOException expected");
+		}
+		catch(IOException e) {
+		}
+		assertEquals(callable.attemptCount.get(), 1);
+	}
+
+	@Test
+	public void testStopWhenBreakerOpens() throws Exception {
+		CircuitBreakerConfig config = createConfig();
+		config.setMaxRetryAttempts(5);
+		config.setMinimumNumberOfCalls(2);
+		config.setFailureRateThreshold(50);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		FailingCallable callable = new FailingCallable(10);
+		try {
+			circuitBreaker.executeWithRetry(callable);
+			fail("IOException expected");
+		}
+		catch(IOException e) {
+			assertEquals(e.getMessage(), "attempt 2");
+		}
+		assertEquals(callable.attemptCount.get(), 2);
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.OPEN);
+		try {
+			circuitBreaker.executeWithRetry(callable);
+			fail("CallNotPermittedException expected");
+		}
+		catch(CallNotPermittedException e) {
+		}
+		assertEquals(callable.attemptCount.get(), 2);
+	}
+
+	@Test
+	public void testExceptionClassifier() throws Exception {
+		CircuitBreakerConfig config = createConfig();
+		config.setExceptionClassifier(new BreakerExceptionClassifier() {
+			@Override
+			public boolean isFailure(Throwable t) {
+				return !(t instanceof IOException);
+			}
+		});
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		FailingCallable callable = new FailingCallable(10);
+		try {
+			circuitBreaker.executeWithRetry(callable);
+			fail("IOException expected");
+		}
+		catch(IOException e) {
+		}
+		assertEquals(callable.attemptCount.get(), 1);
+	}
+
+	@Test
+	public void testRetryBudget() throws Exception {
+		ManualClock clock = new ManualClock();
+		CircuitBreakerConfig config = createConfig();
+		config.setClock(clock);
+		config.setMaxRetryAttempts(5);
+		config.setRetryBudgetPercentage(20);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		for(int i = 0; i<10; i++)
+			circuitBreaker.execute(new FailingCallable(0));
+		//20% of 10 successful calls
+		FailingCallable callable = new FailingCallable(10);
+		try {
+			circuitBreaker.executeWithRetry(callable);
+			fail("IOException expected");
+		}
+		catch(IOException e) {
+		}
+		assertEquals(callable.attemptCount.get(), 3);
+		callable = new FailingCallable(10);
+		try {
+			circuitBreaker.executeWithRetry(callable);
+			fail("IOException expected");
+		}
+		catch(IOException e) {
+		}
+		assertEquals(callable.attemptCount.get(), 1);
+		//new period and empty window, a single retry
+		clock.advance(100000);
+		callable = new FailingCallable(10);
+		try {
+			circuitBreaker.executeWithRetry(callable);
+			fail("IOException expected");
+		}
+		catch(IOException e) {
+		}
+		assertEquals(callable.attemptCount.get(), 2);
+	}
+
+	/**
+	 * A COUNT_BASED window has no duration, the budget period is slidingWindowBucketWidth
+	 */
+	@Test
+	public void testRetryBudgetCountBased() throws Exception {
+		ManualClock clock = new ManualClock();
+		CircuitBreakerConfig config = createConfig();
+		config.setClock(clock);
+		config.setSlidingWindowType(SlidingWindowType.COUNT_BASED);
+		config.setMaxRetryAttempts(5);
+		config.setRetryBudgetPercentage(20);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		for(int i = 0; i<10; i++)
+			circuitBreaker.execute(new FailingCallable(0));
+		for(int period = 0; period<2; period++) {
+			//20% of 10 successful calls, then the budget of the period is used
+			FailingCallable callable = new FailingCallable(10);
+			try {
+				circuitBreaker.executeWithRetry(callable);
+				fail("IOException expected");
+			}
+			catch(IOException e) {
+			}
+			assertEquals(callable.attemptCount.get(), 3);
+			callable = new FailingCallable(10);
+			try {
+				circuitBreaker.executeWithRetry(callable);
+				fail("IOException expected");
+			}
+			catch(IOException e) {
+			}
+			assertEquals(callable.attemptCount.get(), 1);
+			clock.advance(config.getSlidingWindowBucketWidth());
+		}
+	}
+
+	/**
+	 * A DISABLED breaker has no window, it keeps the minimum budget of one retry per period
+	 */
+	@Test
+	public void testRetryBudgetDisabled() throws Exception {
+		ManualClock clock = new ManualClock();
+		CircuitBreakerConfig config = createConfig();
+		config.setClock(clock);
+		config.setSlidingWindowSize(0);
+		config.setMaxRetryAttempts(5);
+		config.setRetryBudgetPercentage(20);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.DISABLED);
+		for(int period = 0; period<2; period++) {
+			FailingCallable callable = new FailingCallable(10);
+			try {
+				circuitBreaker.executeWithRetry(callable);
+				fail("IOException expected");
+			}
+			catch(IOException e) {
+			}
+			assertEquals(callable.attemptCount.get(), 2);
+			clock.advance(config.getSlidingWindowBucketWidth());
+		}
+		//no budget, all retries are made
+		config.setRetryBudgetPercentage(0);
+		circuitBreaker = new CircuitBreaker(config);
+		FailingCallable callable = new FailingCallable(10);
+		try {
+			circuitBreaker.executeWithRetry(callable);
+			fail("IOException expected");
+		}
+		catch(IOException e) {
+		}
+		assertEquals(callable.attemptCount.get(), 6);
+	}
+
+	@Test
+	public void testWaitDuration() {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setRetryWaitDuration(100);
+		config.setMaxRetryWaitDuration(300);
+		Retry retry = new Retry(config);
+		for(int i = 0; i<100; i++) {
+			long waitDuration = retry.getWaitDuration(1);
+			assertTrue(waitDuration >= 50 && waitDuration <= 100);
+			waitDuration = retry.getWaitDuration(2);
+			assertTrue(waitDuration >= 100 && waitDuration <= 200);
+			waitDuration = retry.getWaitDuration(3);
+			assertTrue(waitDuration >= 150 && waitDuration <= 300);
+			waitDuration = retry.getWaitDuration(10);
+			assertTrue(waitDuration >= 150 && waitDuration <= 300);
+		}
+	}
+
+	@Test
+	public void testInterrupt() throws Exception {
+		CircuitBreakerConfig config = createConfig();
+		config.setRetryWaitDuration(60000);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		FailingCallable callable = new FailingCallable(10);
+		Thread.currentThread().interrupt();
+		try {
+			circuitBreaker.executeWithRetry(callable);
+			fail("IOException expected");
+		}
+		catch(IOException e) {
+		}
+		assertTrue(Thread.interrupted());
+		assertEquals(callable.attemptCount.get(), 1);
+	}
+}
@@ -0,0 +1,67 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class StateChangeEventTest {
+
+	@Test
+	public void testEventContent() throws InterruptedException {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setName("TestEvent");
+		config.setSlidingWindowSize(10);
+		config.setMinimumNumberOfCalls(4);
+		config.setFailureRateThreshold(50);
+		config.setSlowCallDurationThreshold(100);
+		config.setSlowCallRateThreshold(0);
+		config.setPermittedNumberOfCallsInHalfOpenState(2);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		final LinkedBlockingQueue<CircuitBreakerStateChangeEvent> events = new LinkedBlockingQueue<CircuitBreakerStateChangeEvent>();
+		circuitBreaker.getBreakerStateEventManager().addBreakerStateEventListener(new BreakerStateEventListener() {
+			@Override
+			public void onCircuitBreakerStateChangeEvent(CircuitBreakerStateChangeEvent event) {
+				events.add(event);
+			}
+		});
+		long clockTime = config.getClock().currentTimeMillis();
+		circuitBreaker.callSucceeded(10);
+		circuitBreaker.callSucceeded(200);
+		circuitBreaker.callFailed(10);
+		circuitBreaker.callFailed(200);
+		CircuitBreakerStateChangeEvent event = events.poll(5, TimeUnit.SECONDS);
+		assertNotNull(event);
+		assertEquals(event.getCircuitBreakerName(), "TestEvent");
+		assertEquals(event.getPreviousBreakerStateType(), BreakerStateType.CLOSED);
+		assertEquals(event.getNewBreakerStateType(), BreakerStateType.OPEN);
+		assertEquals(event.getReason(), StateChangeReason.THRESHOLD_EXCEEDED);
+		assertEquals(event.getCallCount(), 4);
+		assertEquals(event.getFailureCallCount(), 2);
+		assertEquals(event.getSlowCallDurationCount(), 2);
+		assertEquals(event.getFailureRate(), 50f, 0f);
+		assertEquals(event.getSlowCallRate(), 50f, 0f);
+		assertTrue(event.getClockTime() >= clockTime);
+		assertEquals(event.getDetails(), "Threshold exceeded. countStats:{callCount:4, failureCallCount:2, slowCallDurationCount:2, failureRate:50.0, slowCallRate:50.0}");
+		//no count for this reason
+		circuitBreaker.moveToHalfOpenState(circuitBreaker.getBreakerState(), StateChangeReason.WAIT_DURATION_IN_OPEN_STATE_OVER);
+		event = events.poll(5, TimeUnit.SECONDS);
+		assertNotNull(event);
+		assertEquals(event.getPreviousBreakerStateType(), BreakerStateType.OPEN);
+		assertEquals(event.getNewBreakerStateType(), BreakerStateType.HALF_OPEN);
+		assertEquals(event.getCallCount(), 0);
+		assertEquals(event.getFailureRate(), -1f, 0f);
+		assertEquals(event.getDetails(), "WaitDurationInOpenState is over");
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		assertTrue(circuitBreaker.isClosedForThisCall());
+		circuitBreaker.callSucceeded(10);
+		circuitBreaker.callSucceeded(10);
+		event = events.poll(5, TimeUnit.SECONDS);
+		assertNotNull(event);
+		assertEquals(event.getNewBreakerStateType(), BreakerStateType.CLOSED);
+		assertEquals(event.getReason(), StateChangeReason.HALF_OPEN_NO_THRESHOLD_EXCEEDED);
+		assertEquals(event.getDetails(), "Reached permittedNumberOfCallsInHalfOpenState and no threshold exceeded. countStats:{callCount:2, failureCallCount:0, slowCallDurationCount:0, failureRate:0.0, slowCallRate:0.0}");
+	}
+}
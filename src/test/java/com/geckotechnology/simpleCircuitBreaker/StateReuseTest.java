@@ -0,0 +1,147 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+public class StateReuseTest {
+
+	private CircuitBreaker createCircuitBreaker() {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setSlidingWindowSize(3600);
+		config.setSlidingWindowStripeCount(4);
+		config.setMinimumNumberOfCalls(2);
+		config.setFailureRateThreshold(50);
+		config.setPermittedNumberOfCallsInHalfOpenState(2);
+		return new CircuitBreaker(config);
+	}
+
+	/**
+	 * closed -> open -> half-open -> closed -> open -> half-open -> closed, the same objects come back with fresh counts
+	 */
+	@Test
+	public void testStateObjectsReused() {
+		CircuitBreaker circuitBreaker = createCircuitBreaker();
+		BreakerStateInterface closedState = circuitBreaker.getBreakerState();
+		BreakerStateInterface openState = null;
+		BreakerStateInterface halfOpenState = null;
+		for(int i = 0; i<2; i++) {
+			assertEquals(circuitBreaker.getBreakerState(), closedState);
+			assertTrue(TestUtils.validateAggregatedCountStatsMatches(circuitBreaker, 0, 0, 0));
+			circuitBreaker.callFailed(10);
+			circuitBreaker.callFailed(10);
+			assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.OPEN);
+			if(openState == null)
+				openState = circuitBreaker.getBreakerState();
+			assertEquals(circuitBreaker.getBreakerState(), openState);
+			assertTrue(circuitBreaker.moveToHalfOpenState(openState, StateChangeReason.WAIT_DURATION_IN_OPEN_STATE_OVER));
+			if(halfOpenState == null)
+				halfOpenState = circuitBreaker.getBreakerState();
+			assertEquals(circuitBreaker.getBreakerState(), halfOpenState);
+			//permits are available again
+			assertTrue(circuitBreaker.isClosedForThisCall());
+			assertTrue(circuitBreaker.isClosedForThisCall());
+			assertFalse(circuitBreaker.isClosedForThisCall());
+			circuitBreaker.callSucceeded(10);
+			circuitBreaker.callSucceeded(10);
+			assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.CLOSED);
+		}
+		//transition from a state which is not the current one is ignored
+		assertFalse(circuitBreaker.moveToClosedState(openState, StateChangeReason.WAIT_DURATION_IN_OPEN_STATE_OVER_NO_HALF_OPEN));
+		assertEquals(circuitBreaker.getBreakerState(), closedState);
+	}
+
+	/**
+	 * A decision taken in a CLOSED period can not open the breaker once it went through a full cycle back to CLOSED,
+	 * although the state object is the same
+	 */
+	@Test
+	public void testStaleStateToken() {
+		CircuitBreaker circuitBreaker = createCircuitBreaker();
+		BreakerStateInterface closedState = circuitBreaker.getBreakerState();
+		long staleStateToken = circuitBreaker.getStateToken();
+		assertTrue(circuitBreaker.moveToOpenState(closedState, staleStateToken, StateChangeReason.THRESHOLD_EXCEEDED, 2, 2, 0));
+		assertTrue(circuitBreaker.moveToHalfOpenState(circuitBreaker.getBreakerState(), StateChangeReason.WAIT_DURATION_IN_OPEN_STATE_OVER));
+		assertTrue(circuitBreaker.moveToClosedState(circuitBreaker.getBreakerState(), StateChangeReason.HALF_OPEN_NO_THRESHOLD_EXCEEDED));
+		assertEquals(circuitBreaker.getBreakerState(), closedState);
+		assertFalse(circuitBreaker.moveToOpenState(closedState, staleStateToken, StateChangeReason.THRESHOLD_EXCEEDED, 2, 2, 0));
+		assertEquals(circuitBreaker.getBreakerState(), closedState);
+		assertTrue(circuitBreaker.moveToOpenState(closedState, circuitBreaker.getStateToken(), StateChangeReason.THRESHOLD_EXCEEDED, 2, 2, 0));
+	}
+
+	/**
+	 * Threads keep the breaker cycling through all transitions with a clock in µs. None of them waits for another one,
+	 * so they all end in time
+	 */
+	@Test
+	public void testNoDeadlockUnderContention() throws InterruptedException {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setClock(() -> System.nanoTime() / 1000);
+		config.setSlidingWindowType(SlidingWindowType.COUNT_BASED);
+		config.setSlidingWindowSize(10);
+		config.setMinimumNumberOfCalls(2);
+		config.setPermittedNumberOfCallsInHalfOpenState(2);
+		config.setWaitDurationInOpenState(1);
+		config.setMaxDurationOpenInHalfOpenState(1);
+		final CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		final long endTime = System.currentTimeMillis() + 1000;
+		Thread threads[] = new Thread[8];
+		for(int i = 0; i<threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					while(System.currentTimeMillis() < endTime) {
+						if(!circuitBreaker.isClosedForThisCall())
+							continue;
+						if(ThreadLocalRandom.current().nextBoolean())
+							circuitBreaker.callFailed(10);
+						else
+							circuitBreaker.callSucceeded(10);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for(Thread thread:threads)
+			thread.join(10000);
+		for(Thread thread:threads)
+			assertFalse(thread.isAlive());
+	}
+
+	/**
+	 * Once warmed up, a full cycle of transitions does not allocate when there is no listener,
+	 * including the count checks of CLOSED and HALF_OPEN states
+	 */
+	@Test
+	public void testNoAllocationPerTransition() {
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled());
+		CircuitBreaker circuitBreaker = createCircuitBreaker();
+		long threadId = Thread.currentThread().getId();
+		long allocatedBytes = 0;
+		for(int run = 0; run<20; run++) {
+			long allocatedBytesBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+			for(int i = 0; i<1000; i++) {
+				//threshold exceeded
+				circuitBreaker.callFailed(10);
+				circuitBreaker.callFailed(10);
+				circuitBreaker.moveToHalfOpenState(circuitBreaker.getBreakerState(), StateChangeReason.WAIT_DURATION_IN_OPEN_STATE_OVER);
+				//permitted calls succeed
+				circuitBreaker.isClosedForThisCall();
+				circuitBreaker.isClosedForThisCall();
+				circuitBreaker.callSucceeded(10);
+				circuitBreaker.callSucceeded(10);
+			}
+			allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBytesBefore;
+			if(allocatedBytes == 0)
+				break;
+		}
+		assertEquals(allocatedBytes, 0);
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.CLOSED);
+	}
+}
@@ -0,0 +1,123 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class StripedSlidingWindowTest {
+
+	private static final int THREAD_COUNT = 8;
+	private static final int STRIPE_COUNT = 4;
+
+	/**
+	 * A stripe not used for a while must not count its expired buckets, even if nobody cleared them
+	 */
+	@Test
+	public void testExpiredBucketsNotCounted() {
+		TimeBasedSlidingWindow slidingWindow = new TimeBasedSlidingWindow(3, 100);
+		slidingWindow.addCall(100, true, false, 10);
+		slidingWindow.addCall(100, true, true, 10);
+		slidingWindow.addCall(101, false, true, 10);
+		assertEquals(slidingWindow.getCallCount(101), 3);
+		assertEquals(slidingWindow.getCallCount(102), 3);
+		assertEquals(slidingWindow.getFailureCallCount(102), 2);
+		//bucket 100 is out of the window
+		assertEquals(slidingWindow.getCallCount(103), 1);
+		assertEquals(slidingWindow.getFailureCallCount(103), 0);
+		assertEquals(slidingWindow.getSlowCallDurationCount(103), 1);
+		//all buckets are out of the window
+		assertEquals(slidingWindow.getCallCount(104), 0);
+		assertEquals(slidingWindow.getSlowCallDurationCount(200), 0);
+		//reader late compared to the last writer
+		assertEquals(slidingWindow.getCallCount(99), 3);
+		//nothing was cleared by the readers
+		synchronized(slidingWindow) {
+			assertTrue(TestUtils.isCountStatsEqual(slidingWindow.getCountStats(), slidingWindow.calculateAggregatedCountStatsForUnitTest()));
+			assertEquals(slidingWindow.getCountStats().callCount, 3);
+		}
+	}
+
+	/**
+	 * A thread which read its bucket timestamp before another one moved to the next bucket must not clear the current bucket
+	 */
+	@Test
+	public void testLateWriter() {
+		TimeBasedSlidingWindow slidingWindow = new TimeBasedSlidingWindow(3, 10);
+		slidingWindow.addCall(10, false, false, 10);
+		slidingWindow.addCall(10, true, false, 10);
+		slidingWindow.addCall(9, true, true, 10);
+		slidingWindow.addCall(10, false, false, 10);
+		assertEquals(slidingWindow.getCallCount(10), 4);
+		assertEquals(slidingWindow.getFailureCallCount(10), 2);
+		assertEquals(slidingWindow.getSlowCallDurationCount(10), 1);
+		//bucket 9 expires before bucket 10
+		assertEquals(slidingWindow.getCallCount(12), 3);
+		//out of the window, dropped
+		slidingWindow.addCall(7, true, false, 10);
+		assertEquals(slidingWindow.getCallCount(10), 4);
+		synchronized(slidingWindow) {
+			assertTrue(TestUtils.isCountStatsEqual(slidingWindow.getCountStats(), slidingWindow.calculateAggregatedCountStatsForUnitTest()));
+		}
+	}
+
+	/**
+	 * The monotonic clock starts close to 0, expired timestamps may then be negative
+	 */
+	@Test
+	public void testClockStartingAtZero() {
+		TimeBasedSlidingWindow slidingWindow = new TimeBasedSlidingWindow(3, 0);
+		assertEquals(slidingWindow.getCallCount(1), 0);
+		slidingWindow.addCall(1, true, false, 10);
+		assertEquals(slidingWindow.getCallCount(2), 1);
+		assertEquals(slidingWindow.getFailureCallCount(4), 0);
+	}
+
+	@Test
+	public void testMultiThread() {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setSlidingWindowSize(30);
+		config.setSlidingWindowStripeCount(STRIPE_COUNT);
+		config.setMinimumNumberOfCalls(100);
+		config.setFailureRateThreshold(50);
+		config.setSlowCallRateThreshold(0);
+		final CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		assertEquals(((BreakerClosedState)circuitBreaker.getBreakerState()).getSlidingWindowsForUnitTest().length, STRIPE_COUNT);
+		//step 1: 8 threads, 20 success each
+		runThreads(circuitBreaker, 20, false);
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.CLOSED);
+		assertTrue(TestUtils.validateAggregatedCountStatsMatches(circuitBreaker, THREAD_COUNT * 20, 0, 0));
+		//step 2: 8 threads, 19 failures each: 152 failures out of 312 calls is below 50%
+		runThreads(circuitBreaker, 19, true);
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.CLOSED);
+		assertTrue(TestUtils.validateAggregatedCountStatsMatches(circuitBreaker, THREAD_COUNT * 39, THREAD_COUNT * 19, 0));
+		//step 3: the sum of the stripes reaches 50%
+		runThreads(circuitBreaker, 1, true);
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.OPEN);
+	}
+
+	private void runThreads(final CircuitBreaker circuitBreaker, final int callCount, final boolean isFailureCall) {
+		Thread threads[] = new Thread[THREAD_COUNT];
+		for(int t = 0; t<THREAD_COUNT; t++) {
+			threads[t] = new Thread() {
+				public void run() {
+					for(int i = 0; i<callCount; i++) {
+						if(circuitBreaker.isClosedForThisCall()) {
+							if(isFailureCall)
+								circuitBreaker.callFailed(10);
+							else
+								circuitBreaker.callSucceeded(10);
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for(int t = 0; t<THREAD_COUNT; t++) {
+			try {
+				threads[t].join();
+			} catch (InterruptedException e) {
+				fail("InterruptedException catched: " + e);
+			}
+		}
+	}
+}
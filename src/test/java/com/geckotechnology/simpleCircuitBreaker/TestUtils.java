@@ -26,43 +26,54 @@ public class TestUtils {
 	}
 	
 	/**
-	 * The code will lock the circuitBreaker for the duration of the validation
+	 * The code will lock each sliding window stripe for the duration of its validation
 	 * @param circuitBreaker
 	 * @return
 	 */
 	public static boolean validateAggregatedCountStatsMatches(CircuitBreaker circuitBreaker) {
-		synchronized(circuitBreaker) {
-			assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.CLOSED);
-			BreakerClosedState breakerClosedState = (BreakerClosedState)circuitBreaker.getBreakerState();
-			CountStats agrregatedCountStats = breakerClosedState.calculateAggregatedCountStatsForUnitTest();
-			return isCountStatsEqual(agrregatedCountStats, breakerClosedState.getCountStats());
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.CLOSED);
+		BreakerClosedState breakerClosedState = (BreakerClosedState)circuitBreaker.getBreakerState();
+		for(SlidingWindowInterface slidingWindow:breakerClosedState.getSlidingWindowsForUnitTest()) {
+			synchronized(slidingWindow) {
+				CountStats agrregatedCountStats = slidingWindow.calculateAggregatedCountStatsForUnitTest();
+				if(!isCountStatsEqual(agrregatedCountStats, slidingWindow.getCountStats()))
+					return false;
+			}
 		}
+		return true;
 	}
 	
 	/**
-	 * The code will lock the circuitBreaker for the duration of the validation
+	 * The code will lock each sliding window stripe for the duration of its validation
 	 * @param circuitBreaker
 	 * @return
 	 */
 	public static boolean validateAggregatedCountStatsMatches(CircuitBreaker circuitBreaker,
 			int expectedCallCount, int expectedFailureCallCount, int expectedSlowCallDurationCount) {
-		synchronized(circuitBreaker) {
-			assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.CLOSED);
-			BreakerClosedState breakerClosedState = (BreakerClosedState)circuitBreaker.getBreakerState();
-			//step 1: ensure that sum(all buckets) = current countStats
-			CountStats agrregatedCountStats = breakerClosedState.calculateAggregatedCountStatsForUnitTest();
-			boolean checkAggregated = isCountStatsEqual(agrregatedCountStats, breakerClosedState.getCountStats());
-			if(!checkAggregated) {
-				System.out.println("sum(all buckets) is different from current countStats");
-				return false;
+		assertEquals(circuitBreaker.getBreakerState().getBreakerStateType(), BreakerStateType.CLOSED);
+		BreakerClosedState breakerClosedState = (BreakerClosedState)circuitBreaker.getBreakerState();
+		CountStats totalCountStats = new CountStats();
+		for(SlidingWindowInterface slidingWindow:breakerClosedState.getSlidingWindowsForUnitTest()) {
+			synchronized(slidingWindow) {
+				//step 1: ensure that sum(all buckets) = current countStats
+				CountStats agrregatedCountStats = slidingWindow.calculateAggregatedCountStatsForUnitTest();
+				CountStats countStats = slidingWindow.getCountStats();
+				boolean checkAggregated = isCountStatsEqual(agrregatedCountStats, countStats);
+				if(!checkAggregated) {
+					System.out.println("sum(all buckets) is different from current countStats");
+					return false;
+				}
+				totalCountStats.callCount += countStats.callCount;
+				totalCountStats.failureCallCount += countStats.failureCallCount;
+				totalCountStats.slowCallDurationCount += countStats.slowCallDurationCount;
 			}
-			//step 2: all passed values match current countStats
-			CountStats expectedCountStats = new CountStats();
-			expectedCountStats.callCount = expectedCallCount;
-			expectedCountStats.failureCallCount = expectedFailureCallCount;
-			expectedCountStats.slowCallDurationCount = expectedSlowCallDurationCount;
-			return isCountStatsEqual(expectedCountStats, breakerClosedState.getCountStats());
 		}
+		//step 2: all passed values match current countStats
+		CountStats expectedCountStats = new CountStats();
+		expectedCountStats.callCount = expectedCallCount;
+		expectedCountStats.failureCallCount = expectedFailureCallCount;
+		expectedCountStats.slowCallDurationCount = expectedSlowCallDurationCount;
+		return isCountStatsEqual(expectedCountStats, totalCountStats);
 	}
 	
 	public static int countChars(String s, char c) {
@@ -0,0 +1,160 @@
+package com.geckotechnology.simpleCircuitBreaker;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class TimeLimiterTest {
+
+	private final ExecutorService executorService = Executors.newCachedThreadPool();
+
+	@After
+	public void tearDown() {
+		executorService.shutdownNow();
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setSlowCallDurationThreshold(100);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		final CountDownLatch interruptedLatch = new CountDownLatch(1);
+		long startTime = System.currentTimeMillis();
+		try {
+			circuitBreaker.executeWithTimeout(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					try {
+						Thread.sleep(5000);
+					}
+					catch(InterruptedException e) {
+						interruptedLatch.countDown();
+						throw e;
+					}
+					return "too late";
+				}
+			}, executorService);
+			fail("TimeoutException expected");
+		}
+		catch(TimeoutException e) {
+		}
+		assertTrue(System.currentTimeMillis() - startTime < 2000);
+		assertTrue(interruptedLatch.await(5, TimeUnit.SECONDS));
+		//recorded once, as failed and slow
+		CircuitBreakerMetrics metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getCallCount(), 1);
+		assertEquals(metrics.getFailureCallCount(), 1);
+		assertEquals(metrics.getSlowCallDurationCount(), 1);
+	}
+
+	@Test
+	public void testTimeoutDuration() throws Exception {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setSlowCallDurationThreshold(10);
+		config.setTimeoutDuration(2000);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		assertEquals(circuitBreaker.executeWithTimeout(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				Thread.sleep(50);
+				return "slow";
+			}
+		}, executorService), "slow");
+		try {
+			circuitBreaker.executeWithTimeout(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					throw new IOException("failed");
+				}
+			}, executorService);
+			fail("IOException expected");
+		}
+		catch(IOException e) {
+			assertEquals(e.getMessage(), "failed");
+		}
+		CircuitBreakerMetrics metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getCallCount(), 2);
+		assertEquals(metrics.getFailureCallCount(), 1);
+		assertEquals(metrics.getSlowCallDurationCount(), 1);
+	}
+
+	/**
+	 * Neither a rejected submission nor an interrupted caller tells anything about the backend
+	 */
+	@Test
+	public void testRejectedOrInterruptedNotRecorded() throws Exception {
+		CircuitBreakerConfig config = new CircuitBreakerConfig();
+		config.setMaxConcurrentCalls(1);
+		config.setTimeoutDuration(5000);
+		config.setPermittedNumberOfCallsInHalfOpenState(1);
+		CircuitBreaker circuitBreaker = new CircuitBreaker(config);
+		Callable<String> callable = new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				Thread.sleep(1000);
+				return "done";
+			}
+		};
+		ExecutorService shutdownExecutorService = Executors.newSingleThreadExecutor();
+		shutdownExecutorService.shutdown();
+		try {
+			circuitBreaker.executeWithTimeout(callable, shutdownExecutorService);
+			fail("RejectedExecutionException expected");
+		}
+		catch(RejectedExecutionException e) {
+		}
+		Thread.currentThread().interrupt();
+		try {
+			circuitBreaker.executeWithTimeout(callable, executorService);
+			fail("InterruptedException expected");
+		}
+		catch(InterruptedException e) {
+		}
+		CircuitBreakerMetrics metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getCallCount(), 0);
+		assertEquals(metrics.getFailureCallCount(), 0);
+		assertEquals(metrics.getConcurrentCallCount(), 0);
+		//a HALF_OPEN permit is given back
+		circuitBreaker.moveToHalfOpenState(circuitBreaker.getBreakerState(), StateChangeReason.WAIT_DURATION_IN_OPEN_STATE_OVER);
+		try {
+			circuitBreaker.executeWithTimeout(callable, shutdownExecutorService);
+			fail("RejectedExecutionException expected");
+		}
+		catch(RejectedExecutionException e) {
+		}
+		assertTrue(circuitBreaker.isClosedForThisCall());
+	}
+
+	/**
+	 * An exception of the call is recorded as is, even one the executor could throw
+	 */
+	@Test
+	public void testCallExceptionRecorded() throws Exception {
+		CircuitBreaker circuitBreaker = new CircuitBreaker(new CircuitBreakerConfig());
+		try {
+			circuitBreaker.executeWithTimeout(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					throw new RejectedExecutionException("thrown by the call");
+				}
+			}, executorService);
+			fail("RejectedExecutionException expected");
+		}
+		catch(RejectedExecutionException e) {
+			assertEquals(e.getMessage(), "thrown by the call");
+		}
+		CircuitBreakerMetrics metrics = circuitBreaker.getMetrics();
+		assertEquals(metrics.getCallCount(), 1);
+		assertEquals(metrics.getFailureCallCount(), 1);
+	}
+}